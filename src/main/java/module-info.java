@@ -17,5 +17,6 @@ open module org.panteleyev.money {
     requires org.jsoup;
 
     requires mysql.connector.java;
+    requires com.h2database;
     requires liquibase.core;
 }
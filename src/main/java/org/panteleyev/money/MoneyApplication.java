@@ -11,6 +11,8 @@ import javafx.stage.Stage;
 import org.panteleyev.money.app.MainWindowController;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
@@ -53,6 +55,19 @@ public class MoneyApplication extends Application {
         });
     }
 
+    /**
+     * Reports failure of an asynchronous operation. Intended to be used with
+     * {@link CompletableFuture#exceptionally}.
+     *
+     * @param e failure, possibly wrapped into {@link CompletionException}
+     * @param <T> result type of the future
+     * @return null
+     */
+    public static <T> T uncaughtAsyncException(Throwable e) {
+        uncaughtException(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+        return null;
+    }
+
     public static void main(String[] args) {
         Application.launch(MoneyApplication.class, args);
     }
@@ -23,6 +23,7 @@ import javafx.scene.layout.BorderPane;
 import javafx.stage.FileChooser;
 import org.panteleyev.fx.PredicateProperty;
 import org.panteleyev.fx.TableColumnBuilder;
+import org.panteleyev.money.MoneyApplication;
 import org.panteleyev.money.app.cells.AccountBalanceCell;
 import org.panteleyev.money.app.cells.AccountCardCell;
 import org.panteleyev.money.app.cells.AccountCategoryCell;
@@ -367,10 +368,9 @@ final class AccountWindowController extends BaseController {
     }
 
     private void onUpdateBalance() {
-        tableView.getItems().forEach(account -> {
-            var total = cache().calculateBalance(account, false, t -> true);
-            var waiting = cache().calculateBalance(account, false, t -> !t.checked());
-            getDao().updateAccount(account.updateBalance(total, waiting));
-        });
+        var visible = tableView.getItems().stream()
+            .map(Account::uuid)
+            .toList();
+        getDao().reconcileBalances(visible).exceptionally(MoneyApplication::uncaughtAsyncException);
     }
 }
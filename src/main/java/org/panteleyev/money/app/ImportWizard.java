@@ -148,20 +148,22 @@ final class ImportWizard extends BaseDialog<Object> {
                     throw new RuntimeException("File not found");
                 }
 
-                progress.accept("Reading file... ");
-                try (var input = new FileInputStream(file)) {
-                    var imp = Import.doImport(input);
-                    progress.accept("done\n\n");
-
-                    if (fullDump) {
-                        getDao().importFullDump(imp, progress);
-                    } else {
-                        getDao().importRecords(imp, progress);
-                    }
+                if (fullDump) {
+                    // File is validated first, then parsed again while records are inserted
+                    getDao().importFullDump(file.toPath(), true, progress);
                     progress.accept("\n");
-                    getDao().preload(progress);
-                } catch (Exception ex) {
-                    throw new RuntimeException(ex);
+                    getDao().preload(progress).join();
+                } else {
+                    try (var input = new FileInputStream(file)) {
+                        progress.accept("Reading file... ");
+                        var imp = Import.doImport(input);
+                        progress.accept("done\n\n");
+
+                        // Cache is compared and updated on the FX thread
+                        getDao().importRecordsAsync(imp, progress).join();
+                    } catch (Exception ex) {
+                        throw new RuntimeException(ex);
+                    }
                 }
             }).handle((x, t) -> {
                 if (t != null) {
@@ -245,7 +245,7 @@ class IncomesAndExpensesWindowController extends BaseController {
         Function<Transaction, UUID> accUuidFunc = type == CategoryType.EXPENSES ?
             Transaction::accountCreditedUuid : Transaction::accountDebitedUuid;
 
-        cache().getTransactions().stream()
+        cache().getTransactions(filterBox.getFrom(), filterBox.getTo()).stream()
             .filter(filterBox.predicateProperty().get())
             .filter(t -> cache().getCategory(catUuidFunc.apply(t))
                 .map(Category::type).orElseThrow() == type)
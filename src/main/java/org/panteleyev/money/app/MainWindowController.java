@@ -29,6 +29,7 @@ import javafx.stage.Stage;
 import javafx.stage.WindowEvent;
 import org.controlsfx.validation.ValidationResult;
 import org.controlsfx.validation.Validator;
+import org.h2.jdbcx.JdbcDataSource;
 import org.panteleyev.money.MoneyApplication;
 import org.panteleyev.money.app.database.ConnectDialog;
 import org.panteleyev.money.app.database.ConnectionProfile;
@@ -39,15 +40,19 @@ import org.panteleyev.money.bundles.UiBundle;
 import org.panteleyev.money.model.Account;
 import org.panteleyev.money.model.Transaction;
 import org.panteleyev.money.model.TransactionDetail;
+import org.panteleyev.money.persistence.ConnectionPool;
 import org.panteleyev.money.persistence.MoneyDAO;
 import org.panteleyev.money.xml.Export;
+import javax.sql.DataSource;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.Month;
+import java.time.YearMonth;
 import java.time.format.TextStyle;
 import java.util.List;
 import java.util.Locale;
@@ -111,6 +116,7 @@ import static org.panteleyev.money.bundles.Internationalization.I18N_WORD_CONNEC
 import static org.panteleyev.money.bundles.Internationalization.I18N_WORD_DETAILS;
 import static org.panteleyev.money.bundles.Internationalization.I18N_WORD_REPORT;
 import static org.panteleyev.money.persistence.DataCache.cache;
+import static org.panteleyev.money.persistence.MoneyDAO.IGNORE_PROGRESS;
 import static org.panteleyev.money.persistence.MoneyDAO.getDao;
 
 public class MainWindowController extends BaseController implements TransactionTableView.TransactionDetailsCallback {
@@ -324,7 +330,7 @@ public class MainWindowController extends BaseController implements TransactionT
     }
 
     private void open(ConnectionProfile profile) {
-        var ds = onBuildDatasource(profile);
+        var ds = new ConnectionPool.Builder(onBuildDatasource(profile)).build();
 
         getDao().initialize(ds);
 
@@ -351,11 +357,25 @@ public class MainWindowController extends BaseController implements TransactionT
             }
         }
 
+        if (options().getWriteBehind()) {
+            getDao().enableWriteBehind(MoneyApplication::uncaughtException);
+        }
+        getDao().setTransactionResidency(options().getResidentYears(), options().getLoadedYears());
         var loadResult = CompletableFuture
-            .runAsync(() -> getDao().preload())
+            .runAsync(() -> getDao().preload(IGNORE_PROGRESS, true)
+                .exceptionally(MoneyApplication::uncaughtAsyncException))
             .thenRun(() -> Platform.runLater(() -> {
                 setTitle(AboutDialog.APP_TITLE + " - " + profile.name() + " - " + profile.getConnectionString());
                 dbOpenProperty.set(true);
+                // Stored totals are verified by the database without loading the history
+                getDao().reconcileBalances().exceptionally(t -> {
+                    MoneyApplication.uncaughtException(t.getCause() != null ? t.getCause() : t);
+                    return null;
+                });
+                if (options().getRefreshInterval() > 0) {
+                    getDao().startRefresh(Duration.ofSeconds(options().getRefreshInterval()),
+                        MoneyApplication::uncaughtException);
+                }
             }));
 
         checkFutureException(loadResult);
@@ -404,7 +424,7 @@ public class MainWindowController extends BaseController implements TransactionT
                     .withAccounts(cache().getAccounts(), false)
                     .withCurrencies(cache().getCurrencies())
                     .withContacts(cache().getContacts(), false)
-                    .withTransactions(cache().getTransactions(), false)
+                    .withTransactions(getDao().getAllTransactions(), false)
                     .doExport(outputStream);
                 options().setLastExportDir(selected.getParent());
                 options().saveSettings();
@@ -442,11 +462,20 @@ public class MainWindowController extends BaseController implements TransactionT
     }
 
     private Exception onResetDatabase(ConnectionProfile profile) {
-        var ds = onBuildDatasource(profile);
-        return MoneyDAO.resetDatabase(ds, profile.schema());
+        return switch (profile.type()) {
+            case TCP -> MoneyDAO.resetDatabase(buildMysqlDataSource(profile), profile.schema());
+            case EMBEDDED -> MoneyDAO.resetDatabase(buildEmbeddedDataSource(profile));
+        };
+    }
+
+    private DataSource onBuildDatasource(ConnectionProfile profile) {
+        return switch (profile.type()) {
+            case TCP -> buildMysqlDataSource(profile);
+            case EMBEDDED -> buildEmbeddedDataSource(profile);
+        };
     }
 
-    private MysqlDataSource onBuildDatasource(ConnectionProfile profile) {
+    private MysqlDataSource buildMysqlDataSource(ConnectionProfile profile) {
         try {
             var ds = new MysqlDataSource();
 
@@ -466,6 +495,12 @@ public class MainWindowController extends BaseController implements TransactionT
         }
     }
 
+    private static JdbcDataSource buildEmbeddedDataSource(ConnectionProfile profile) {
+        var ds = new JdbcDataSource();
+        ds.setURL("jdbc:" + profile.getConnectionString());
+        return ds;
+    }
+
     private void setCurrentDate() {
         var now = LocalDate.now();
         monthFilterBox.getSelectionModel().select(now.getMonth().getValue() - 1);
@@ -523,7 +558,8 @@ public class MainWindowController extends BaseController implements TransactionT
             && t.year() == year;
 //            && t.getParentId() == 0;
 
-        transactionTable.setTransactionFilter(filter);
+        var period = YearMonth.of(year, month);
+        transactionTable.setTransactionFilter(filter, period.atDay(1), period.atEndOfMonth());
     }
 
     private void onMonthChanged() {
@@ -201,7 +201,7 @@ class RequestWindowController extends BaseController {
     }
 
     private void onUpdateFilter() {
-        table.setTransactionFilter(filterProperty.get());
+        table.setTransactionFilter(filterProperty.get(), transactionFilterBox.getFrom(), transactionFilterBox.getTo());
     }
 
     private void resetFilter() {
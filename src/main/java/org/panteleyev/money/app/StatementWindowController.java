@@ -24,6 +24,7 @@ import javafx.scene.layout.Priority;
 import javafx.scene.layout.Region;
 import javafx.stage.FileChooser;
 import org.panteleyev.fx.TableColumnBuilder;
+import org.panteleyev.money.MoneyApplication;
 import org.panteleyev.money.app.cells.LocalDateCell;
 import org.panteleyev.money.app.cells.StatementRow;
 import org.panteleyev.money.app.cells.StatementSumCell;
@@ -41,9 +42,9 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.time.LocalDate;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import static org.panteleyev.fx.BoxFactory.hBox;
 import static org.panteleyev.fx.ButtonFactory.button;
 import static org.panteleyev.fx.FxFactory.newCheckBox;
@@ -171,7 +172,8 @@ class StatementWindowController extends BaseController {
     void onNewTransaction(StatementRecord statementRecord) {
         var account = accountComboBox.getSelectionModel().getSelectedItem();
         new TransactionDialog(this, options().getDialogCssFileUrl(), statementRecord, account, cache()).showAndWait()
-            .ifPresent(builder -> getDao().insertTransaction(builder));
+            .ifPresent(builder -> getDao().insertTransactionAsync(builder)
+                .exceptionally(MoneyApplication::uncaughtAsyncException));
     }
 
     void onStatementRecordSelected(StatementRecord statementRecord) {
@@ -355,11 +357,12 @@ class StatementWindowController extends BaseController {
     }
 
     void onCheckStatementRecord(StatementRecord record, boolean check) {
-        var transactions = new ArrayList<>(record.getTransactions());
-        for (var t : transactions) {
-            getDao().updateTransaction(t.check(check));
-        }
-        Platform.runLater(() -> statementTable.getSelectionModel().select(record));
+        var updates = record.getTransactions().stream()
+            .map(t -> getDao().updateTransactionAsync(t.check(check)))
+            .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(updates)
+            .thenRun(() -> statementTable.getSelectionModel().select(record))
+            .exceptionally(MoneyApplication::uncaughtAsyncException);
     }
 
     private TableView<StatementRecord> createStatementTable() {
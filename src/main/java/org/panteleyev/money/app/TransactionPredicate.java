@@ -8,46 +8,30 @@ import org.panteleyev.money.model.CategoryType;
 import org.panteleyev.money.model.Transaction;
 import java.time.LocalDate;
 import java.time.Month;
+import java.time.YearMonth;
+import java.time.ZoneId;
 import java.time.format.TextStyle;
 import java.util.Locale;
 import java.util.Objects;
 import java.util.UUID;
 import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 import static org.panteleyev.money.app.Bundles.TRANSACTION_PREDICATE_BUNDLE;
 
 public enum TransactionPredicate implements Predicate<Transaction> {
     ALL(it -> true),
 
-    CURRENT_YEAR(it -> it.year() == LocalDate.now().getYear()),
+    CURRENT_YEAR(now -> now.withDayOfYear(1), now -> now.withDayOfYear(now.lengthOfYear())),
 
-    CURRENT_MONTH(it -> {
-        var now = LocalDate.now();
-        return it.year() == now.getYear() && it.month() == now.getMonthValue();
-    }),
+    CURRENT_MONTH(now -> YearMonth.from(now).atDay(1), now -> YearMonth.from(now).atEndOfMonth()),
 
-    CURRENT_WEEK(it -> {
-        var now = LocalDate.now();
-        var from = now.minusDays(now.getDayOfWeek().getValue() - 1);
-        return checkRange(it, from, now);
-    }),
-
-    LAST_YEAR(it -> {
-        var now = java.time.LocalDate.now();
-        var from = now.minusYears(1);
-        return checkRange(it, from, now);
-    }),
-
-    LAST_QUARTER(it -> {
-        var now = java.time.LocalDate.now();
-        var from = now.minusMonths(3);
-        return checkRange(it, from, now);
-    }),
-
-    LAST_MONTH(it -> {
-        var now = LocalDate.now();
-        var from = now.minusMonths(1);
-        return checkRange(it, from, now);
-    }),
+    CURRENT_WEEK(now -> now.minusDays(now.getDayOfWeek().getValue() - 1), now -> now),
+
+    LAST_YEAR(now -> now.minusYears(1), now -> now),
+
+    LAST_QUARTER(now -> now.minusMonths(3), now -> now),
+
+    LAST_MONTH(now -> now.minusMonths(1), now -> now),
 
     JANUARY(Month.JANUARY),
     FEBRUARY(Month.FEBRUARY),
@@ -64,18 +48,30 @@ public enum TransactionPredicate implements Predicate<Transaction> {
 
     private final Predicate<Transaction> predicate;
     private final String description;
+    private final UnaryOperator<LocalDate> from;
+    private final UnaryOperator<LocalDate> to;
+
+    // Epoch day bounds of the period, recalculated when the day changes
+    private volatile Bounds bounds = new Bounds(Long.MIN_VALUE, 0, 0);
 
     TransactionPredicate(Predicate<Transaction> p) {
         predicate = p;
         description = TRANSACTION_PREDICATE_BUNDLE.getString(name());
+        from = null;
+        to = null;
     }
 
-    TransactionPredicate(Month month) {
-        predicate = (t) -> {
-            var now = LocalDate.now();
-            return t.year() == now.getYear() && t.month() == month.getValue();
-        };
+    TransactionPredicate(UnaryOperator<LocalDate> from, UnaryOperator<LocalDate> to) {
+        this.from = from;
+        this.to = to;
+        predicate = this::checkBounds;
+        description = TRANSACTION_PREDICATE_BUNDLE.getString(name());
+    }
 
+    TransactionPredicate(Month month) {
+        from = now -> YearMonth.of(now.getYear(), month).atDay(1);
+        to = now -> YearMonth.of(now.getYear(), month).atEndOfMonth();
+        predicate = this::checkBounds;
         description = month.getDisplayName(TextStyle.FULL_STANDALONE, Locale.getDefault());
     }
 
@@ -84,6 +80,24 @@ public enum TransactionPredicate implements Predicate<Transaction> {
         return description;
     }
 
+    /**
+     * Returns the first date of the period covered by this predicate.
+     *
+     * @return first date or null if period is not bounded
+     */
+    public LocalDate getFrom() {
+        return from == null ? null : from.apply(LocalDate.now());
+    }
+
+    /**
+     * Returns the last date of the period covered by this predicate.
+     *
+     * @return last date or null if period is not bounded
+     */
+    public LocalDate getTo() {
+        return to == null ? null : to.apply(LocalDate.now());
+    }
+
     public static Predicate<Transaction> transactionByAccount(UUID uuid) {
         return it -> Objects.equals(it.accountDebitedUuid(), uuid)
             || Objects.equals(it.accountCreditedUuid(), uuid);
@@ -103,12 +117,33 @@ public enum TransactionPredicate implements Predicate<Transaction> {
     }
 
     public static Predicate<Transaction> transactionByDates(LocalDate from, LocalDate to) {
-        return it -> checkRange(it, from, to);
+        var fromDay = (int) from.toEpochDay();
+        var toDay = (int) to.toEpochDay();
+        return it -> checkRange(it, fromDay, toDay);
+    }
+
+    private static boolean checkRange(Transaction t, int fromDay, int toDay) {
+        var day = t.epochDay();
+        return day >= fromDay && day <= toDay;
+    }
+
+    private boolean checkBounds(Transaction t) {
+        var b = bounds;
+        if (System.currentTimeMillis() >= b.validUntil()) {
+            b = calculateBounds();
+        }
+        return checkRange(t, b.fromDay(), b.toDay());
+    }
+
+    private Bounds calculateBounds() {
+        var now = LocalDate.now();
+        var validUntil = now.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        var b = new Bounds(validUntil, (int) from.apply(now).toEpochDay(), (int) to.apply(now).toEpochDay());
+        bounds = b;
+        return b;
     }
 
-    private static boolean checkRange(Transaction t, LocalDate from, LocalDate to) {
-        var date = LocalDate.of(t.year(), t.month(), t.day());
-        return date.compareTo(from) >= 0 && date.compareTo(to) <= 0;
+    private record Bounds(long validUntil, int fromDay, int toDay) {
     }
 
     @Override
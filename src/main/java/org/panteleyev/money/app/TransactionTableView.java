@@ -22,6 +22,7 @@ import javafx.scene.control.TableView;
 import javafx.stage.FileChooser;
 import javafx.util.Callback;
 import org.panteleyev.fx.PredicateProperty;
+import org.panteleyev.money.MoneyApplication;
 import org.panteleyev.money.app.cells.TransactionAccountRequestSumCell;
 import org.panteleyev.money.app.cells.TransactionCheckCell;
 import org.panteleyev.money.app.cells.TransactionCommentCell;
@@ -39,11 +40,13 @@ import org.panteleyev.money.model.Contact;
 import org.panteleyev.money.model.Transaction;
 import org.panteleyev.money.model.TransactionDetail;
 import org.panteleyev.money.persistence.MoneyDAO;
+import org.panteleyev.money.persistence.TransactionRange;
 import org.panteleyev.money.xml.Export;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
@@ -116,7 +119,9 @@ public class TransactionTableView extends TableView<Transaction> {
     // Transaction filter
     private final PredicateProperty<Transaction> transactionPredicateProperty = new PredicateProperty<>(x -> false);
 
-    private final FilteredList<Transaction> filteredList = new FilteredList<>(cache().getTransactions());
+    // Date range of the transactions, not used in statement mode
+    private final TransactionRange transactionRange;
+    private final FilteredList<Transaction> filteredList;
 
     // List size property
     private final SimpleIntegerProperty listSizeProperty = new SimpleIntegerProperty(0);
@@ -151,6 +156,14 @@ public class TransactionTableView extends TableView<Transaction> {
         this.transactionAddedCallback = transactionAddedCallback;
         this.transactionUpdatedCallback = transactionUpdatedCallback;
 
+        if (mode == Mode.STATEMENT) {
+            transactionRange = null;
+            filteredList = new FilteredList<>(cache().getTransactions());
+        } else {
+            transactionRange = new TransactionRange(cache());
+            filteredList = new FilteredList<>(transactionRange.getTransactions());
+        }
+
         setRowFactory(x -> new TransactionRow());
 
         getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
@@ -265,6 +278,24 @@ public class TransactionTableView extends TableView<Transaction> {
     }
 
     void setTransactionFilter(Predicate<Transaction> filter) {
+        setTransactionFilter(filter, null, null);
+    }
+
+    /**
+     * Sets transaction filter. Only transactions within the specified date range are processed by the filter.
+     *
+     * @param filter transaction filter
+     * @param from first date, inclusive, null means no lower bound
+     * @param to last date, inclusive, null means no upper bound
+     */
+    void setTransactionFilter(Predicate<Transaction> filter, LocalDate from, LocalDate to) {
+        if (transactionRange != null) {
+            transactionRange.setRange(from, to);
+            // Transactions outside of the resident window are added to the range when loaded
+            getDao().loadTransactionsAsync(from, to)
+                .thenRun(() -> listSizeProperty.set(filteredList.size()))
+                .exceptionally(MoneyApplication::uncaughtAsyncException);
+        }
         transactionPredicateProperty.set(filter.and(t -> t.parentUuid() == null));
         listSizeProperty.set(filteredList.size());
     }
@@ -343,7 +374,9 @@ public class TransactionTableView extends TableView<Transaction> {
 
     void onNewTransaction() {
         new TransactionDialog(null, options().getDialogCssFileUrl(), cache()).showAndWait().ifPresent(
-            builder -> transactionAddedCallback.accept(getDao().insertTransaction(builder))
+            builder -> getDao().insertTransactionAsync(builder)
+                .thenAccept(transactionAddedCallback)
+                .exceptionally(MoneyApplication::uncaughtAsyncException)
         );
     }
 
@@ -351,8 +384,12 @@ public class TransactionTableView extends TableView<Transaction> {
         var selection = getCurrentSelection();
         getSelectedTransaction()
             .flatMap(selected -> new TransactionDialog(null, options().getDialogCssFileUrl(), selected, cache()).showAndWait())
-            .ifPresent(builder -> transactionUpdatedCallback.accept(getDao().updateTransaction(builder)));
-        restoreSelection(selection);
+            .ifPresent(builder -> getDao().updateTransactionAsync(builder)
+                .thenAccept(transaction -> {
+                    transactionUpdatedCallback.accept(transaction);
+                    restoreSelection(selection);
+                })
+                .exceptionally(MoneyApplication::uncaughtAsyncException));
     }
 
     void onDeleteTransaction() {
@@ -361,7 +398,8 @@ public class TransactionTableView extends TableView<Transaction> {
                 .showAndWait()
                 .ifPresent(r -> {
                     if (r == ButtonType.OK) {
-                        getDao().deleteTransaction(transaction);
+                        getDao().deleteTransactionAsync(transaction)
+                            .exceptionally(MoneyApplication::uncaughtAsyncException);
                     }
                 }));
     }
@@ -5,11 +5,18 @@
 package org.panteleyev.money.app.database;
 
 /**
- * Profile for a typical database connection.
+ * Profile for a typical database connection. Server parameters are ignored by embedded profiles, database file
+ * is ignored by TCP profiles.
  */
-public record ConnectionProfile(String name, String dataBaseHost, int dataBasePort,
-                                String dataBaseUser, String dataBasePassword, String schema
+public record ConnectionProfile(ConnectionType type, String name, String dataBaseHost, int dataBasePort,
+                                String dataBaseUser, String dataBasePassword, String schema, String dataBaseFile
 ) {
+    public ConnectionProfile(String name, String dataBaseHost, int dataBasePort,
+                             String dataBaseUser, String dataBasePassword, String schema)
+    {
+        this(ConnectionType.TCP, name, dataBaseHost, dataBasePort, dataBaseUser, dataBasePassword, schema, "");
+    }
+
     ConnectionProfile(String name, String schema) {
         this(name, "localhost", 3306, "", "", schema);
     }
@@ -19,6 +26,9 @@ public record ConnectionProfile(String name, String dataBaseHost, int dataBasePo
     }
 
     public String getConnectionString(int port) {
-        return "mysql://" + dataBaseHost + ":" + port + "/" + schema;
+        return switch (type) {
+            case TCP -> "mysql://" + dataBaseHost + ":" + port + "/" + schema;
+            case EMBEDDED -> "h2:file:" + dataBaseFile;
+        };
     }
 }
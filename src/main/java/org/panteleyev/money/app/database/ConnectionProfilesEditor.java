@@ -10,6 +10,8 @@ import javafx.event.ActionEvent;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.Alert;
+import javafx.scene.control.ChoiceBox;
+import javafx.scene.control.ChoiceDialog;
 import javafx.scene.control.Control;
 import javafx.scene.control.Label;
 import javafx.scene.control.ListView;
@@ -32,6 +34,8 @@ import java.util.Objects;
 import java.util.Optional;
 import static javafx.event.ActionEvent.ACTION;
 import static javafx.scene.control.Alert.AlertType.CONFIRMATION;
+import static javafx.scene.control.Alert.AlertType.ERROR;
+import static javafx.scene.control.Alert.AlertType.INFORMATION;
 import static javafx.scene.control.Alert.AlertType.WARNING;
 import static javafx.scene.control.ButtonBar.ButtonData.BIG_GAP;
 import static javafx.scene.control.ButtonBar.ButtonData.LEFT;
@@ -43,12 +47,15 @@ import static javafx.scene.control.ButtonType.OK;
 import static javafx.scene.control.ButtonType.YES;
 import static org.panteleyev.fx.ButtonFactory.buttonType;
 import static org.panteleyev.fx.FxUtils.COLON;
+import static org.panteleyev.fx.FxUtils.ELLIPSIS;
 import static org.panteleyev.fx.FxUtils.fxString;
 import static org.panteleyev.fx.LabelFactory.label;
 import static org.panteleyev.money.app.MainWindowController.UI;
 import static org.panteleyev.money.app.options.Options.options;
 import static org.panteleyev.money.bundles.Internationalization.I18M_MISC_SCHEMA_RESET_HEADER;
 import static org.panteleyev.money.bundles.Internationalization.I18N_MISC_ARE_YOU_SURE;
+import static org.panteleyev.money.bundles.Internationalization.I18N_MISC_COPY_DATA;
+import static org.panteleyev.money.bundles.Internationalization.I18N_MISC_EMBEDDED_DATABASE;
 import static org.panteleyev.money.bundles.Internationalization.I18N_MISC_PROFILE_NAME;
 import static org.panteleyev.money.bundles.Internationalization.I18N_MISC_SCHEMA_RESET;
 import static org.panteleyev.money.bundles.Internationalization.I18N_MISC_SCHEMA_RESET_TEXT;
@@ -58,7 +65,11 @@ import static org.panteleyev.money.bundles.Internationalization.I18N_WORD_CONNEC
 import static org.panteleyev.money.bundles.Internationalization.I18N_WORD_DELETE;
 import static org.panteleyev.money.bundles.Internationalization.I18N_WORD_PROFILES;
 import static org.panteleyev.money.bundles.Internationalization.I18N_WORD_SAVE;
+import static org.panteleyev.money.bundles.Internationalization.I18N_WORD_SERVER;
 import static org.panteleyev.money.bundles.Internationalization.I18N_WORD_TEST;
+import static org.panteleyev.money.bundles.Internationalization.I18N_WORD_TYPE;
+import static org.panteleyev.money.persistence.MoneyDAO.IGNORE_PROGRESS;
+import static org.panteleyev.money.persistence.MoneyDAO.getDao;
 
 class ConnectionProfilesEditor extends BaseDialog<Object> {
     private final ValidationSupport validation = new ValidationSupport();
@@ -69,7 +80,11 @@ class ConnectionProfilesEditor extends BaseDialog<Object> {
 
     private final ListView<ConnectionProfile> profileListView;
     private final TextField profileNameEdit = new TextField();
+    private final ChoiceBox<ConnectionType> typeChoiceBox =
+        new ChoiceBox<>(FXCollections.observableArrayList(ConnectionType.values()));
     private final TCPEditor tcpEditor;
+    private final EmbeddedEditor embeddedEditor;
+    private final TitledPane connectionPane = new TitledPane();
     private final Label testStatusLabel = new Label();
 
     private final ConnectionProfileManager profileManager;
@@ -94,16 +109,19 @@ class ConnectionProfilesEditor extends BaseDialog<Object> {
         profileListView = initProfileListView();
 
         tcpEditor = new TCPEditor(validation, this::onResetButton);
+        embeddedEditor = new EmbeddedEditor(validation, this::onResetButton);
+        initTypeChoiceBox();
 
         setTitle(fxString(UI, I18N_WORD_PROFILES));
 
         var newButtonType = buttonType(fxString(UI, I18N_WORD_ADD), LEFT);
         var deleteButtonType = buttonType(fxString(UI, I18N_WORD_DELETE), LEFT);
+        var copyButtonType = buttonType(fxString(UI, I18N_MISC_COPY_DATA, ELLIPSIS), BIG_GAP);
         var testButtonType = buttonType(fxString(UI, I18N_WORD_TEST), BIG_GAP);
         var saveButtonType = buttonType(fxString(UI, I18N_WORD_SAVE), SMALL_GAP);
 
         getDialogPane().getButtonTypes().addAll(
-            newButtonType, deleteButtonType, testButtonType, saveButtonType, CLOSE
+            newButtonType, deleteButtonType, copyButtonType, testButtonType, saveButtonType, CLOSE
         );
 
         getButton(newButtonType).ifPresent(b -> b.addEventFilter(ACTION, this::onNewButton));
@@ -120,6 +138,13 @@ class ConnectionProfilesEditor extends BaseDialog<Object> {
             b.addEventFilter(ACTION, this::onSaveButton);
         });
 
+        getButton(copyButtonType).ifPresent(b -> {
+            b.disableProperty().bind(validation.invalidProperty()
+                .or(profileListView.getSelectionModel().selectedItemProperty().isNull())
+            );
+            b.addEventFilter(ACTION, this::onCopyButton);
+        });
+
         getButton(testButtonType).ifPresent(b -> {
             b.disableProperty().bind(validation.invalidProperty());
             b.addEventFilter(ACTION, this::onTestButton);
@@ -142,6 +167,25 @@ class ConnectionProfilesEditor extends BaseDialog<Object> {
         return Optional.ofNullable(profileListView.getSelectionModel().getSelectedItem());
     }
 
+    private boolean isTcp() {
+        return typeChoiceBox.getValue() != ConnectionType.EMBEDDED;
+    }
+
+    private void initTypeChoiceBox() {
+        typeChoiceBox.setConverter(new ReadOnlyStringConverter<>() {
+            @Override
+            public String toString(ConnectionType type) {
+                return type == ConnectionType.EMBEDDED ?
+                    fxString(UI, I18N_MISC_EMBEDDED_DATABASE) : fxString(UI, I18N_WORD_SERVER);
+            }
+        });
+        typeChoiceBox.valueProperty().addListener((observable, oldValue, newValue) -> {
+            connectionPane.setContent(newValue == ConnectionType.EMBEDDED ? embeddedEditor : tcpEditor);
+            validation.revalidate();
+        });
+        typeChoiceBox.setValue(ConnectionType.TCP);
+    }
+
     private ListView<ConnectionProfile> initProfileListView() {
         var listView = new ListView<ConnectionProfile>();
 
@@ -198,12 +242,14 @@ class ConnectionProfilesEditor extends BaseDialog<Object> {
 
     private ConnectionProfile buildConnectionProfile() {
         return new ConnectionProfile(
+            typeChoiceBox.getValue(),
             profileNameEdit.getText(),
             tcpEditor.getDataBaseHost(),
             tcpEditor.getDataBasePort(),
             tcpEditor.getDataBaseUser(),
             tcpEditor.getDataBasePassword(),
-            tcpEditor.getSchema()
+            tcpEditor.getSchema(),
+            embeddedEditor.getDataBaseFile()
         );
     }
 
@@ -233,7 +279,7 @@ class ConnectionProfilesEditor extends BaseDialog<Object> {
 
         var profile = buildConnectionProfile();
 
-        var TEST_QUERY = "SHOW TABLES FROM " + profile.schema();
+        var TEST_QUERY = profile.type() == ConnectionType.TCP ? "SHOW TABLES FROM " + profile.schema() : "SHOW TABLES";
 
         var ds = profileManager.getBuildDataSourceCallback().apply(profile);
 
@@ -245,6 +291,46 @@ class ConnectionProfilesEditor extends BaseDialog<Object> {
         }
     }
 
+    private void onCopyButton(ActionEvent event) {
+        event.consume();
+
+        var source = buildConnectionProfile();
+        // Profiles pointing to the source database are not offered, open database is rejected by the copy itself
+        var targets = profileListView.getItems().stream()
+            .filter(profile -> !profile.name().equals(source.name()))
+            .filter(profile -> !profile.getConnectionString().equals(source.getConnectionString()))
+            .map(ConnectionProfile::name)
+            .toList();
+        if (targets.isEmpty()) {
+            return;
+        }
+
+        var dialog = new ChoiceDialog<>(targets.get(0), targets);
+        dialog.setTitle(fxString(UI, I18N_MISC_COPY_DATA));
+        dialog.setHeaderText(null);
+
+        dialog.showAndWait()
+            .flatMap(name -> profileListView.getItems().stream().filter(p -> p.name().equals(name)).findAny())
+            .filter(target -> {
+                var alert = new Alert(WARNING, UI.getString(I18N_MISC_SCHEMA_RESET_TEXT), YES, NO);
+                alert.setHeaderText(fxString(UI, I18M_MISC_SCHEMA_RESET_HEADER));
+                alert.setTitle(target.name());
+                return alert.showAndWait().filter(response -> response == YES).isPresent();
+            })
+            .ifPresent(target -> {
+                var buildDataSource = profileManager.getBuildDataSourceCallback();
+                getDao().copyDatabaseAsync(buildDataSource.apply(source), buildDataSource.apply(target),
+                    IGNORE_PROGRESS).whenCompleteAsync((x, t) -> {
+                    var alert = t == null ?
+                        new Alert(INFORMATION, "Success", OK) :
+                        new Alert(ERROR, (t.getCause() != null ? t.getCause() : t).getMessage(), OK);
+                    alert.setTitle(fxString(UI, I18N_MISC_COPY_DATA));
+                    alert.setHeaderText(target.name());
+                    alert.show();
+                }, Platform::runLater);
+            });
+    }
+
     private void testSuccess() {
         Platform.runLater(() -> {
             testStatusLabel.setText("Success");
@@ -261,6 +347,8 @@ class ConnectionProfilesEditor extends BaseDialog<Object> {
 
     private void onProfileSelected(ConnectionProfile profile) {
         tcpEditor.setProfile(profile);
+        embeddedEditor.setProfile(profile);
+        typeChoiceBox.setValue(profile != null ? profile.type() : ConnectionType.TCP);
         if (profile != null) {
             profileNameEdit.setText("");               // enforce validation
             profileNameEdit.setText(profile.name());
@@ -279,13 +367,16 @@ class ConnectionProfilesEditor extends BaseDialog<Object> {
 
     private void createValidationSupport() {
         validation.registerValidator(tcpEditor.getSchemaEdit(), (Control control, String value) ->
-            ValidationResult.fromErrorIf(control, null, value.isEmpty())
+            ValidationResult.fromErrorIf(control, null, isTcp() && value.isEmpty())
         );
         validation.registerValidator(tcpEditor.getDataBaseHostEdit(), (Control control, String value) ->
-            ValidationResult.fromErrorIf(control, null, value.isEmpty())
+            ValidationResult.fromErrorIf(control, null, isTcp() && value.isEmpty())
         );
         validation.registerValidator(tcpEditor.getDataBaseUserEdit(), (Control control, String value) ->
-            ValidationResult.fromErrorIf(control, null, value.isEmpty())
+            ValidationResult.fromErrorIf(control, null, isTcp() && value.isEmpty())
+        );
+        validation.registerValidator(embeddedEditor.getDataBaseFileEdit(), (Control control, String value) ->
+            ValidationResult.fromErrorIf(control, null, !isTcp() && value.isBlank())
         );
         validation.registerValidator(tcpEditor.getDataBasePortEdit(), INTEGER_VALIDATOR);
         validation.initInitialDecoration();
@@ -317,15 +408,20 @@ class ConnectionProfilesEditor extends BaseDialog<Object> {
         var hBox = new HBox(label(fxString(UI, I18N_MISC_PROFILE_NAME, COLON)), profileNameEdit);
         hBox.setAlignment(Pos.CENTER_LEFT);
 
-        var titled = new TitledPane(UI.getString(I18N_WORD_CONNECTION), tcpEditor);
+        var typeBox = new HBox(label(fxString(UI, I18N_WORD_TYPE, COLON)), typeChoiceBox);
+        typeBox.setAlignment(Pos.CENTER_LEFT);
+
+        var titled = connectionPane;
+        titled.setText(UI.getString(I18N_WORD_CONNECTION));
         titled.setCollapsible(false);
 
 
-        pane.getChildren().addAll(hBox, titled);
+        pane.getChildren().addAll(hBox, typeBox, titled);
         pane.getChildren().add(testStatusLabel);
 
         HBox.setHgrow(profileNameEdit, Priority.ALWAYS);
         HBox.setMargin(profileNameEdit, new Insets(0.0, 0.0, 10.0, 5.0));
+        HBox.setMargin(typeChoiceBox, new Insets(0.0, 0.0, 10.0, 5.0));
         VBox.setMargin(titled, new Insets(0.0, 0.0, 10.0, 0.0));
 
         return pane;
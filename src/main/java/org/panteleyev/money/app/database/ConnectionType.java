@@ -0,0 +1,16 @@
+/*
+ Copyright (c) Petr Panteleyev. All rights reserved.
+ Licensed under the BSD license. See LICENSE file in the project root for full license information.
+ */
+package org.panteleyev.money.app.database;
+
+public enum ConnectionType {
+    /**
+     * MySQL server.
+     */
+    TCP,
+    /**
+     * Embedded H2 database file, opened in-process.
+     */
+    EMBEDDED
+}
@@ -0,0 +1,95 @@
+/*
+ Copyright (c) Petr Panteleyev. All rights reserved.
+ Licensed under the BSD license. See LICENSE file in the project root for full license information.
+ */
+package org.panteleyev.money.app.database;
+
+import javafx.event.ActionEvent;
+import javafx.geometry.Insets;
+import javafx.scene.control.TextField;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
+import org.controlsfx.validation.ValidationSupport;
+import org.panteleyev.money.app.Images;
+import java.io.File;
+import java.util.List;
+import java.util.function.Consumer;
+import static javafx.event.ActionEvent.ACTION;
+import static org.panteleyev.fx.ButtonFactory.button;
+import static org.panteleyev.fx.FxUtils.COLON;
+import static org.panteleyev.fx.FxUtils.ELLIPSIS;
+import static org.panteleyev.fx.FxUtils.fxString;
+import static org.panteleyev.fx.LabelFactory.label;
+import static org.panteleyev.fx.grid.GridBuilder.columnConstraints;
+import static org.panteleyev.fx.grid.GridBuilder.gridPane;
+import static org.panteleyev.fx.grid.GridRowBuilder.gridRow;
+import static org.panteleyev.money.app.MainWindowController.UI;
+import static org.panteleyev.money.app.Styles.GRID_PANE;
+import static org.panteleyev.money.bundles.Internationalization.I18N_WORD_FILE;
+import static org.panteleyev.money.bundles.Internationalization.I18N_WORD_RESET;
+
+final class EmbeddedEditor extends VBox {
+    // Appended by H2 to the database name
+    private static final String FILE_EXTENSION = ".mv.db";
+
+    private final TextField dataBaseFileEdit = new TextField();
+
+    EmbeddedEditor(ValidationSupport validation, Consumer<ActionEvent> resetSchemaHandler) {
+        var browseButton = button(ELLIPSIS);
+        browseButton.setOnAction(event -> onBrowse());
+
+        var resetSchemaButton = button(fxString(UI, I18N_WORD_RESET));
+        resetSchemaButton.setGraphic(new ImageView(Images.WARNING));
+        resetSchemaButton.disableProperty().bind(validation.invalidProperty());
+        resetSchemaButton.addEventFilter(ACTION, resetSchemaHandler::accept);
+
+        getChildren().addAll(gridPane(
+            List.of(
+                gridRow(label(fxString(UI, I18N_WORD_FILE, COLON)), dataBaseFileEdit, browseButton,
+                    resetSchemaButton)
+            ), b -> b.withStyle(GRID_PANE)
+                .withConstraints(columnConstraints(Priority.NEVER), columnConstraints(Priority.ALWAYS))
+        ));
+
+        VBox.setMargin(getChildren().get(0), new Insets(10.0, 10.0, 10.0, 10.0));
+    }
+
+    TextField getDataBaseFileEdit() {
+        return dataBaseFileEdit;
+    }
+
+    String getDataBaseFile() {
+        return dataBaseFileEdit.getText();
+    }
+
+    void setDataBaseFile(String file) {
+        dataBaseFileEdit.setText(file);
+    }
+
+    void setProfile(ConnectionProfile profile) {
+        setDataBaseFile(profile != null ? profile.dataBaseFile() : "");
+    }
+
+    private void onBrowse() {
+        var fileChooser = new FileChooser();
+        fileChooser.setTitle(fxString(UI, I18N_WORD_FILE));
+        if (!getDataBaseFile().isBlank()) {
+            var current = new File(getDataBaseFile());
+            if (current.getParentFile() != null && current.getParentFile().isDirectory()) {
+                fileChooser.setInitialDirectory(current.getParentFile());
+            }
+            fileChooser.setInitialFileName(current.getName() + FILE_EXTENSION);
+        }
+
+        var selected = fileChooser.showSaveDialog(getScene().getWindow());
+        if (selected != null) {
+            var path = selected.getAbsolutePath();
+            if (path.endsWith(FILE_EXTENSION)) {
+                path = path.substring(0, path.length() - FILE_EXTENSION.length());
+            }
+            setDataBaseFile(path);
+        }
+    }
+}
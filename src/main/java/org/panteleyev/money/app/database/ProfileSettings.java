@@ -28,6 +28,8 @@ record ProfileSettings(Collection<ConnectionProfile> profiles, String defaultPro
     private static final String PROFILE_SCHEMA = "schema";
     private static final String PROFILE_USER = "user";
     private static final String PROFILE_PASSWORD = "password";
+    private static final String PROFILE_TYPE = "type";
+    private static final String PROFILE_FILE = "file";
 
     public void save(OutputStream out) {
         var root = createDocument(ROOT);
@@ -77,22 +79,26 @@ record ProfileSettings(Collection<ConnectionProfile> profiles, String defaultPro
 
     private static void serialize(Element parent, ConnectionProfile profile) {
         var element = appendElement(parent, PROFILE_ELEMENT);
+        element.setAttribute(PROFILE_TYPE, profile.type().name());
         element.setAttribute(PROFILE_NAME, profile.name());
         element.setAttribute(PROFILE_HOST, profile.dataBaseHost());
         element.setAttribute(PROFILE_PORT, Integer.toString(profile.dataBasePort()));
         element.setAttribute(PROFILE_USER, profile.dataBaseUser());
         element.setAttribute(PROFILE_PASSWORD, profile.dataBasePassword());
         element.setAttribute(PROFILE_SCHEMA, profile.schema());
+        element.setAttribute(PROFILE_FILE, profile.dataBaseFile());
     }
 
     private static ConnectionProfile deserializeConnectionProfile(Element element) {
         return new ConnectionProfile(
+            ConnectionType.valueOf(XMLUtils.getAttribute(element, PROFILE_TYPE, ConnectionType.TCP.name())),
             element.getAttribute(PROFILE_NAME),
             XMLUtils.getAttribute(element, PROFILE_HOST, "localhost"),
             XMLUtils.getAttribute(element, PROFILE_PORT, 3306),
             element.getAttribute(PROFILE_USER),
             element.getAttribute(PROFILE_PASSWORD),
-            element.getAttribute(PROFILE_SCHEMA)
+            element.getAttribute(PROFILE_SCHEMA),
+            element.getAttribute(PROFILE_FILE)
         );
     }
 }
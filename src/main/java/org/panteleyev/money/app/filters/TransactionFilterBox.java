@@ -112,11 +112,7 @@ public class TransactionFilterBox extends HBox {
         }
 
         // Add years from existing transactions
-        cache().getTransactions().stream()
-            .map(Transaction::year)
-            .distinct()
-            .sorted()
-            .forEach(filterChoice.getItems()::add);
+        filterChoice.getItems().addAll(cache().getTransactionYears());
 
         filterChoice.setOnAction(updateHandler);
     }
@@ -135,6 +131,46 @@ public class TransactionFilterBox extends HBox {
         }
     }
 
+    /**
+     * Returns the first date of the selected period.
+     *
+     * @return first date or null if period is not bounded
+     */
+    public LocalDate getFrom() {
+        if (periodRadio.isSelected()) {
+            var selected = filterChoice.getSelectionModel().getSelectedItem();
+            if (selected instanceof TransactionPredicate transactionPredicate) {
+                return transactionPredicate.getFrom();
+            } else if (selected instanceof Integer year) {
+                return LocalDate.of(year, 1, 1);
+            } else {
+                return null;
+            }
+        } else {
+            return fromPicker.getValue();
+        }
+    }
+
+    /**
+     * Returns the last date of the selected period.
+     *
+     * @return last date or null if period is not bounded
+     */
+    public LocalDate getTo() {
+        if (periodRadio.isSelected()) {
+            var selected = filterChoice.getSelectionModel().getSelectedItem();
+            if (selected instanceof TransactionPredicate transactionPredicate) {
+                return transactionPredicate.getTo();
+            } else if (selected instanceof Integer year) {
+                return LocalDate.of(year, 12, 31);
+            } else {
+                return null;
+            }
+        } else {
+            return toPicker.getValue();
+        }
+    }
+
     public void setTransactionFilter(TransactionPredicate filter) {
         periodRadio.setSelected(true);
         filterChoice.getSelectionModel().select(filter);
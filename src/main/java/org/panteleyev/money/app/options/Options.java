@@ -37,9 +37,15 @@ public final class Options {
     private static final String SHOW_DEACTIVATED_ACCOUNTS_ELEMENT = "showDeactivatedAccounts";
     private static final String LAST_STATEMENT_DIR_ELEMENT = "lastStatementDir";
     private static final String LAST_EXPORT_DIR_ELEMENT = "lastExportDir";
+    private static final String RESIDENT_YEARS_ELEMENT = "residentYears";
+    private static final String LOADED_YEARS_ELEMENT = "loadedYears";
+    private static final String WRITE_BEHIND_ELEMENT = "writeBehind";
+    private static final String REFRESH_INTERVAL_ELEMENT = "refreshInterval";
 
     private static final int DEFAULT_AUTO_COMPLETE_LENGTH = 3;
     private static final int DEFAULT_ACCOUNT_CLOSING_DAY_DELTA = 10;
+    private static final int DEFAULT_RESIDENT_YEARS = 0;
+    private static final int DEFAULT_LOADED_YEARS = 5;
     private static final String OPTIONS_DIRECTORY = ".money-manager";
 
     // Settings values
@@ -48,6 +54,10 @@ public final class Options {
     private boolean showDeactivatedAccounts = false;
     private String lastStatementDir = "";
     private String lastExportDir = "";
+    private int residentYears = DEFAULT_RESIDENT_YEARS;
+    private int loadedYears = DEFAULT_LOADED_YEARS;
+    private boolean writeBehind = false;
+    private int refreshInterval = 0;
 
     private final WindowsSettings windowsSettings = new WindowsSettings();
     private final ColorSettings colorSettings = new ColorSettings();
@@ -219,6 +229,58 @@ public final class Options {
         accountClosingDayDelta = delta;
     }
 
+    /**
+     * Returns number of years of transactions loaded at startup.
+     *
+     * @return number of years, 0 means all transactions
+     */
+    public int getResidentYears() {
+        return residentYears;
+    }
+
+    public void setResidentYears(int years) {
+        residentYears = years;
+    }
+
+    /**
+     * Returns maximum number of older years loaded on demand and kept in memory.
+     *
+     * @return number of years
+     */
+    public int getLoadedYears() {
+        return loadedYears;
+    }
+
+    public void setLoadedYears(int years) {
+        loadedYears = years;
+    }
+
+    /**
+     * Returns whether database changes are written in background batches.
+     *
+     * @return write-behind mode
+     */
+    public boolean getWriteBehind() {
+        return writeBehind;
+    }
+
+    public void setWriteBehind(boolean writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    /**
+     * Returns interval of cache refresh with changes made by other clients.
+     *
+     * @return interval in seconds, 0 means refresh is disabled
+     */
+    public int getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    public void setRefreshInterval(int seconds) {
+        refreshInterval = seconds;
+    }
+
     public Font getFont(FontOption option) {
         return fontSettings.getFont(option);
     }
@@ -254,6 +316,10 @@ public final class Options {
             appendTextNode(root, SHOW_DEACTIVATED_ACCOUNTS_ELEMENT, showDeactivatedAccounts);
             appendTextNode(root, LAST_STATEMENT_DIR_ELEMENT, lastStatementDir);
             appendTextNode(root, LAST_EXPORT_DIR_ELEMENT, lastExportDir);
+            appendTextNode(root, RESIDENT_YEARS_ELEMENT, residentYears);
+            appendTextNode(root, LOADED_YEARS_ELEMENT, loadedYears);
+            appendTextNode(root, WRITE_BEHIND_ELEMENT, writeBehind);
+            appendTextNode(root, REFRESH_INTERVAL_ELEMENT, refreshInterval);
             writeDocument(root.getOwnerDocument(), out);
         } catch (IOException ex) {
             throw new UncheckedIOException(ex);
@@ -290,6 +356,18 @@ public final class Options {
             getStringNodeValue(rootElement, LAST_EXPORT_DIR_ELEMENT).ifPresent(
                 value -> lastExportDir = value
             );
+            getIntNodeValue(rootElement, RESIDENT_YEARS_ELEMENT).ifPresent(
+                value -> residentYears = Math.max(0, value)
+            );
+            getIntNodeValue(rootElement, LOADED_YEARS_ELEMENT).ifPresent(
+                value -> loadedYears = Math.max(0, value)
+            );
+            getBooleanNodeValue(rootElement, WRITE_BEHIND_ELEMENT).ifPresent(
+                value -> writeBehind = value
+            );
+            getIntNodeValue(rootElement, REFRESH_INTERVAL_ELEMENT).ifPresent(
+                value -> refreshInterval = Math.max(0, value)
+            );
         } catch (IOException ex) {
             throw new UncheckedIOException(ex);
         }
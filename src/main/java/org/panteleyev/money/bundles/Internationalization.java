@@ -43,6 +43,7 @@ public interface Internationalization {
     String I18M_WORD_EXIT = "I18M_WORD_EXIT";
     String I18N_WORD_EXPENSES = "I18N_WORD_EXPENSES";
     String I18N_WORD_EXPORT = "I18N_WORD_EXPORT";
+    String I18N_WORD_FILE = "I18N_WORD_FILE";
     String I18N_WORD_FONTS = "I18N_WORD_FONTS";
     String I18N_WORD_GENERAL = "I18N_WORD_GENERAL";
     String I18N_WORD_ICONS = "I18N_WORD_ICONS";
@@ -131,6 +132,7 @@ public interface Internationalization {
     String I18N_MISC_CARD_TYPE = "I18N_MISC_CARD_TYPE";
     String I18N_MISC_CLOSING_DATE = "I18N_MISC_CLOSING_DATE";
     String I18N_MISC_CONNECT_AT_STARTUP = "I18N_MISC_CONNECT_AT_STARTUP";
+    String I18N_MISC_COPY_DATA = "I18N_MISC_COPY_DATA";
     String I18N_MISC_CREDITED_ACCOUNT = "I18N_MISC_CREDITED_ACCOUNT";
     String I18N_MISC_DATE_BY_STATEMENT = "I18N_MISC_DATE_BY_STATEMENT";
     String I18N_MISC_DATE_PICKER_TOOLTIP = "I18N_MISC_DATE_PICKER_TOOLTIP";
@@ -138,6 +140,7 @@ public interface Internationalization {
     String I18N_MISC_DEBITED_ACCOUNT = "I18N_MISC_DEBITED_ACCOUNT";
     String I18N_MISC_DEFAULT_CURRENCY = "I18N_MISC_DEFAULT_CURRENCY";
     String I18N_MISC_DEFAULT_PROFILE = "I18N_MISC_DEFAULT_PROFILE";
+    String I18N_MISC_EMBEDDED_DATABASE = "I18N_MISC_EMBEDDED_DATABASE";
     String I18N_WORD_ENTITY_NAME = "I18N_WORD_ENTITY_NAME";
     String I18N_MISC_EXECUTION_DATE_SHORT = "I18N_MISC_EXECUTION_DATE_SHORT";
     String I18N_MISC_FULL_DUMP = "I18N_MISC_FULL_DUMP";
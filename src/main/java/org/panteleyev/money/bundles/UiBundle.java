@@ -49,6 +49,7 @@ public class UiBundle extends ListResourceBundle {
             {I18M_WORD_EXIT, "Exit"},
             {I18N_WORD_EXPENSES, "Expenses"},
             {I18N_WORD_EXPORT, "Export"},
+            {I18N_WORD_FILE, "File"},
             {I18N_WORD_FONTS, "Fonts"},
             {I18N_WORD_GENERAL, "General"},
             {I18N_WORD_ICONS, "Icons"},
@@ -125,6 +126,7 @@ public class UiBundle extends ListResourceBundle {
             {I18N_MISC_CARD_TYPE, "Card Type"},
             {I18N_MISC_CLOSING_DATE, "Closing Date"},
             {I18N_MISC_CONNECT_AT_STARTUP, "Connect at Startup"},
+            {I18N_MISC_COPY_DATA, "Copy Data To"},
             {I18N_MISC_CREDITED_ACCOUNT, "Credited Account"},
             {I18N_MISC_DATE_BY_STATEMENT, "Date by Statement"},
             {I18N_MISC_DATE_PICKER_TOOLTIP, "%s - next day\n%s - previous day\n%s - next month\n%s - previous month\n%s - today"},
@@ -132,6 +134,7 @@ public class UiBundle extends ListResourceBundle {
             {I18N_MISC_DEBITED_ACCOUNT, "Debited Account"},
             {I18N_MISC_DEFAULT_CURRENCY, "Default Currency"},
             {I18N_MISC_DEFAULT_PROFILE, "Default Profile"},
+            {I18N_MISC_EMBEDDED_DATABASE, "Embedded"},
             {I18N_WORD_ENTITY_NAME, "Name"},
             {I18N_MISC_EXECUTION_DATE_SHORT, "Exec. Date"},
             {I18N_MISC_FULL_DUMP, "Full dump"},
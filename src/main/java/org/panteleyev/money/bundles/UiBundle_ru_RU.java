@@ -50,6 +50,7 @@ public class UiBundle_ru_RU extends ListResourceBundle {
             {I18M_WORD_EXIT, "Выход"},
             {I18N_WORD_EXPENSES, "Расходы"},
             {I18N_WORD_EXPORT, "Экспорт"},
+            {I18N_WORD_FILE, "Файл"},
             {I18N_WORD_FONTS, "Шрифты"},
             {I18N_WORD_GENERAL, "Общие"},
             {I18N_WORD_ICONS, "Значки"},
@@ -126,6 +127,7 @@ public class UiBundle_ru_RU extends ListResourceBundle {
             {I18N_MISC_CARD_TYPE, "Тип карты"},
             {I18N_MISC_CLOSING_DATE, "Дата закрытия"},
             {I18N_MISC_CONNECT_AT_STARTUP, "Соединяться при запуске приложения"},
+            {I18N_MISC_COPY_DATA, "Копировать данные в"},
             {I18N_MISC_CREDITED_ACCOUNT, "Счет получателя"},
             {I18N_MISC_DATE_BY_STATEMENT, "Дата по выписке"},
             {I18N_MISC_DATE_PICKER_TOOLTIP, "%s - следующий день\n%s - предыдущий день\n%s - следующий месяц\n%s - предыдущий месяц\n%s - сегодня"},
@@ -133,6 +135,7 @@ public class UiBundle_ru_RU extends ListResourceBundle {
             {I18N_MISC_DEBITED_ACCOUNT, "Исходный счет"},
             {I18N_MISC_DEFAULT_CURRENCY, "Валюта по умолчанию"},
             {I18N_MISC_DEFAULT_PROFILE, "Профиль по умолчанию"},
+            {I18N_MISC_EMBEDDED_DATABASE, "Встроенная"},
             {I18N_WORD_ENTITY_NAME, "Название"},
             {I18N_MISC_EXECUTION_DATE_SHORT, "Дата исп."},
             {I18N_MISC_FULL_DUMP, "Полный дамп"},
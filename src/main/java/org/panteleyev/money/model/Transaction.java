@@ -33,6 +33,7 @@ public record Transaction(
     long created,
     long modified
 ) implements MoneyRecord {
+    private static final int DAYS_0000_TO_1970 = 719528;
 
     public Transaction {
         if (uuid == null) {
@@ -106,6 +107,46 @@ public record Transaction(
         return LocalDate.of(year, month, day);
     }
 
+    /**
+     * Returns transaction date as epoch day, the same value as {@code getDate().toEpochDay()}. Value is calculated
+     * without creating {@link LocalDate} instance, thus it is suitable for range checks of large collections.
+     *
+     * @return epoch day
+     */
+    public int epochDay() {
+        return toEpochDay(year, month, day);
+    }
+
+    /**
+     * Converts date to epoch day using the same algorithm as {@link LocalDate#toEpochDay()}.
+     *
+     * @param year year
+     * @param month month, 1 - 12
+     * @param day day of month
+     * @return epoch day
+     */
+    public static int toEpochDay(int year, int month, int day) {
+        int total = 365 * year;
+        if (year >= 0) {
+            total += (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        } else {
+            total -= year / -4 - year / -100 + year / -400;
+        }
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!isLeapYear(year)) {
+                total--;
+            }
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
     public static final class Builder {
         private BigDecimal amount = BigDecimal.ZERO;
         private int day;
@@ -8,9 +8,12 @@ import org.panteleyev.money.model.Account;
 import org.panteleyev.money.model.CardType;
 import org.panteleyev.money.model.CategoryType;
 import javax.sql.DataSource;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Map;
+import java.util.UUID;
 
 final class AccountRepository extends Repository<Account> {
 
@@ -18,6 +21,16 @@ final class AccountRepository extends Repository<Account> {
         super("account", dataSource);
     }
 
+    @Override
+    protected String getColumns() {
+        return """
+            uuid, name, comment, number, opening,
+            account_limit, rate, type, category_uuid, currency_uuid,
+            enabled, interest, closing_date, icon_uuid, card_type,
+            card_number, total, total_waiting, created, modified
+            """;
+    }
+
     @Override
     protected String getInsertSql() {
         return """
@@ -64,27 +77,28 @@ final class AccountRepository extends Repository<Account> {
 
     @Override
     protected Account fromResultSet(ResultSet rs) throws SQLException {
+        var index = 1;
         return new Account(
-            getUuid(rs, "uuid"),
-            rs.getString("name"),
-            rs.getString("comment"),
-            rs.getString("number"),
-            rs.getBigDecimal("opening"),
-            rs.getBigDecimal("account_limit"),
-            rs.getBigDecimal("rate"),
-            getEnum(rs, "type", CategoryType.class),
-            getUuid(rs, "category_uuid"),
-            getUuid(rs, "currency_uuid"),
-            getBoolean(rs, "enabled"),
-            rs.getBigDecimal("interest"),
-            getLocalDate(rs, "closing_date"),
-            getUuid(rs, "icon_uuid"),
-            getEnum(rs, "card_type", CardType.class),
-            rs.getString("card_number"),
-            rs.getBigDecimal("total"),
-            rs.getBigDecimal("total_waiting"),
-            rs.getLong("created"),
-            rs.getLong("modified")
+            getUuid(rs, index++),
+            rs.getString(index++),
+            rs.getString(index++),
+            rs.getString(index++),
+            rs.getBigDecimal(index++),
+            rs.getBigDecimal(index++),
+            rs.getBigDecimal(index++),
+            getEnum(rs, index++, CategoryType.class),
+            getUuid(rs, index++),
+            getUuid(rs, index++),
+            getBoolean(rs, index++),
+            rs.getBigDecimal(index++),
+            getLocalDate(rs, index++),
+            getUuid(rs, index++),
+            getEnum(rs, index++, CardType.class),
+            rs.getString(index++),
+            rs.getBigDecimal(index++),
+            rs.getBigDecimal(index++),
+            rs.getLong(index++),
+            rs.getLong(index++)
         );
     }
 
@@ -101,7 +115,7 @@ final class AccountRepository extends Repository<Account> {
         st.setBigDecimal(index++, account.accountLimit());
         st.setBigDecimal(index++, account.currencyRate());
         st.setString(index++, account.type().name());
-        st.setString(index++, account.categoryUuid().toString());
+        setUuid(st, index++, account.categoryUuid());
         setUuid(st, index++, account.currencyUuid());
         setBoolean(st, index++, account.enabled());
         st.setBigDecimal(index++, account.interest());
@@ -117,4 +131,60 @@ final class AccountRepository extends Repository<Account> {
             setUuid(st, index, account.uuid());
         }
     }
+
+    /**
+     * Adds balance changes to the stored totals in a single database transaction. Changes made concurrently to the
+     * same accounts are not lost. Modification time is never moved back.
+     *
+     * @param deltas   account uuid to balance change map
+     * @param modified modification time
+     */
+    public void addToBalances(Map<UUID, DataCache.Balance> deltas, long modified) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        try (var conn = getDataSource().getConnection()) {
+            try {
+                conn.setAutoCommit(false);
+                addToBalances(conn, deltas, modified);
+                conn.commit();
+            } catch (Exception ex) {
+                conn.rollback();
+                throw ex;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Adds balance changes to the stored totals. Caller is responsible for the database transaction.
+     *
+     * @param conn     connection
+     * @param deltas   account uuid to balance change map
+     * @param modified modification time
+     */
+    public void addToBalances(Connection conn, Map<UUID, DataCache.Balance> deltas, long modified) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        try (var st = conn.prepareStatement("UPDATE account SET total = total + ?,"
+            + " total_waiting = total_waiting + ?, modified = GREATEST(modified, ?) WHERE uuid = ?"))
+        {
+            for (var entry : deltas.entrySet()) {
+                st.setBigDecimal(1, entry.getValue().total());
+                st.setBigDecimal(2, entry.getValue().waiting());
+                st.setLong(3, modified);
+                setUuid(st, 4, entry.getKey());
+                st.addBatch();
+            }
+            st.executeBatch();
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
 }
@@ -0,0 +1,120 @@
+/*
+ Copyright (c) Petr Panteleyev. All rights reserved.
+ Licensed under the BSD license. See LICENSE file in the project root for full license information.
+ */
+package org.panteleyev.money.persistence;
+
+import com.mysql.cj.conf.PropertyKey;
+import com.mysql.cj.conf.RuntimeProperty;
+import com.mysql.cj.jdbc.JdbcConnection;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * MySQL session prepared for loading data into empty tables. JDBC batches of inserts are rewritten by the driver
+ * into multi-row statements sized to {@code max_allowed_packet}, foreign key and unique checks are disabled,
+ * non-unique indexes are disabled where the storage engine supports it. All settings are restored on close, thus
+ * the connection may be returned to the pool. If settings cannot be restored the connection is aborted.
+ */
+final class BulkLoad implements AutoCloseable {
+    // Reverse foreign key order
+    private static final List<String> TABLES = List.of(
+        "transaction", "account", "contact", "currency", "category", "icon"
+    );
+
+    private final Connection conn;
+    private final RuntimeProperty<Boolean> rewriteBatchedStatements;
+    private final boolean rewriteBatchedStatementsValue;
+    private final boolean autoCommit;
+
+    private BulkLoad(Connection conn, RuntimeProperty<Boolean> rewriteBatchedStatements) throws SQLException {
+        this.conn = conn;
+        this.rewriteBatchedStatements = rewriteBatchedStatements;
+        this.rewriteBatchedStatementsValue = rewriteBatchedStatements.getValue();
+        this.autoCommit = conn.getAutoCommit();
+    }
+
+    /**
+     * Prepares connection for bulk load.
+     *
+     * @param conn connection
+     * @return bulk load session or empty if connection does not support bulk load
+     * @throws SQLException if session settings cannot be changed
+     */
+    static Optional<BulkLoad> begin(Connection conn) throws SQLException {
+        if (!conn.isWrapperFor(JdbcConnection.class)) {
+            return Optional.empty();
+        }
+
+        var bulkLoad = new BulkLoad(conn, conn.unwrap(JdbcConnection.class).getPropertySet()
+            .getBooleanProperty(PropertyKey.rewriteBatchedStatements));
+        try {
+            bulkLoad.start();
+        } catch (SQLException | RuntimeException ex) {
+            bulkLoad.restore();
+            throw ex;
+        }
+        return Optional.of(bulkLoad);
+    }
+
+    /**
+     * Commits loaded data. Disabled indexes are rebuilt by {@link #close()}.
+     *
+     * @throws SQLException if commit fails
+     */
+    void commit() throws SQLException {
+        conn.commit();
+    }
+
+    /**
+     * Rolls back uncommitted data and restores session settings.
+     *
+     * @throws SQLException if settings cannot be restored
+     */
+    @Override
+    public void close() throws SQLException {
+        try {
+            conn.rollback();
+        } finally {
+            restore();
+        }
+    }
+
+    private void start() throws SQLException {
+        rewriteBatchedStatements.setValue(true);
+        conn.setAutoCommit(false);
+        try (var st = conn.createStatement()) {
+            st.execute("SET foreign_key_checks = 0");
+            st.execute("SET unique_checks = 0");
+            for (var table : TABLES) {
+                // Ignored with a warning by InnoDB
+                st.execute("ALTER TABLE " + table + " DISABLE KEYS");
+            }
+        }
+    }
+
+    private void restore() throws SQLException {
+        try {
+            try (var st = conn.createStatement()) {
+                for (var table : TABLES) {
+                    st.execute("ALTER TABLE " + table + " ENABLE KEYS");
+                }
+                st.execute("SET unique_checks = 1");
+                st.execute("SET foreign_key_checks = 1");
+            }
+            conn.setAutoCommit(autoCommit);
+        } catch (SQLException | RuntimeException ex) {
+            // Session with disabled checks must not be reused, aborted connection is discarded by the pool
+            try {
+                conn.abort(Runnable::run);
+            } catch (SQLException abortException) {
+                ex.addSuppressed(abortException);
+            }
+            throw ex;
+        } finally {
+            rewriteBatchedStatements.setValue(rewriteBatchedStatementsValue);
+        }
+    }
+}
@@ -16,6 +16,14 @@ final class CategoryRepository extends Repository<Category> {
         super("category", dataSource);
     }
 
+    @Override
+    protected String getColumns() {
+        return """
+            uuid, name, comment, type, icon_uuid,
+            created, modified
+            """;
+    }
+
     @Override
     protected String getInsertSql() {
         return """
@@ -44,14 +52,15 @@ final class CategoryRepository extends Repository<Category> {
 
     @Override
     protected Category fromResultSet(ResultSet rs) throws SQLException {
+        var index = 1;
         return new Category(
-            getUuid(rs, "uuid"),
-            rs.getString("name"),
-            rs.getString("comment"),
-            getEnum(rs, "type", CategoryType.class),
-            getUuid(rs, "icon_uuid"),
-            rs.getLong("created"),
-            rs.getLong("modified")
+            getUuid(rs, index++),
+            rs.getString(index++),
+            rs.getString(index++),
+            getEnum(rs, index++, CategoryType.class),
+            getUuid(rs, index++),
+            rs.getLong(index++),
+            rs.getLong(index++)
         );
     }
 
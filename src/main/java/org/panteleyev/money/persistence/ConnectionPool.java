@@ -0,0 +1,449 @@
+/*
+ Copyright (c) Petr Panteleyev. All rights reserved.
+ Licensed under the BSD license. See LICENSE file in the project root for full license information.
+ */
+package org.panteleyev.money.persistence;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Bounded pool of connections obtained from the target data source. Connections returned by the pool are
+ * proxies, {@link Connection#close()} returns physical connection back to the pool.
+ * <p>
+ * Connections idle for longer than validation interval are validated before use, connections older than
+ * max lifetime are closed. Connection failure evicts all idle connections, so that new ones are established
+ * after network loss.
+ * <p>
+ * Each physical connection keeps {@link StatementCache}, thus repeated {@link Connection#prepareStatement(String)}
+ * calls with the same SQL text reuse prepared statement.
+ */
+public final class ConnectionPool implements DataSource, AutoCloseable {
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+    /**
+     * Pool metrics.
+     *
+     * @param maxSize maximum number of connections
+     * @param active number of connections in use
+     * @param idle number of idle connections
+     * @param requests total number of connection requests
+     * @param created total number of physical connections created
+     * @param discarded total number of physical connections closed by the pool
+     * @param totalWaitMillis total time spent waiting for connection
+     * @param maxWaitMillis maximum time spent waiting for connection
+     * @param statementsPrepared total number of physical prepared statements created
+     * @param statementCacheHits total number of prepared statements taken from statement caches
+     */
+    public record Metrics(
+        int maxSize,
+        int active,
+        int idle,
+        long requests,
+        long created,
+        long discarded,
+        long totalWaitMillis,
+        long maxWaitMillis,
+        long statementsPrepared,
+        long statementCacheHits
+    ) {
+        public long averageWaitMillis() {
+            return requests == 0 ? 0 : totalWaitMillis / requests;
+        }
+    }
+
+    private static final class PooledConnection {
+        private final Connection connection;
+        private final StatementCache statements;
+        private final long created;
+        private long lastUsed;
+        private volatile boolean broken;
+
+        PooledConnection(Connection connection, StatementCache statements) {
+            this.connection = connection;
+            this.statements = statements;
+            this.created = System.currentTimeMillis();
+            this.lastUsed = created;
+        }
+    }
+
+    private final DataSource target;
+    private final int maxSize;
+    private final long timeoutMillis;
+    private final long validationIntervalMillis;
+    private final long maxLifetimeMillis;
+    private final int statementCacheSize;
+
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private volatile boolean closed = false;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong statementsPrepared = new AtomicLong();
+    private final AtomicLong statementCacheHits = new AtomicLong();
+
+    private ConnectionPool(DataSource target, int maxSize, long timeoutMillis, long validationIntervalMillis,
+                           long maxLifetimeMillis, int statementCacheSize)
+    {
+        this.target = target;
+        this.maxSize = maxSize;
+        this.timeoutMillis = timeoutMillis;
+        this.validationIntervalMillis = validationIntervalMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    public DataSource getTarget() {
+        return target;
+    }
+
+    public Metrics getMetrics() {
+        int idleCount;
+        synchronized (idle) {
+            idleCount = idle.size();
+        }
+
+        return new Metrics(
+            maxSize,
+            maxSize - permits.availablePermits(),
+            idleCount,
+            requests.get(),
+            created.get(),
+            discarded.get(),
+            TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get()),
+            TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()),
+            statementsPrepared.get(),
+            statementCacheHits.get()
+        );
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        var start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTimeoutException("Timeout waiting for connection, pool size " + maxSize);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException(ex);
+        }
+
+        var wait = System.nanoTime() - start;
+        requests.incrementAndGet();
+        totalWaitNanos.addAndGet(wait);
+        maxWaitNanos.accumulateAndGet(wait, Math::max);
+
+        try {
+            var pooled = takeConnection();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new Handler(pooled));
+        } catch (SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pooled connections use credentials of the target data source");
+    }
+
+    /**
+     * Closes all idle connections. Connections in use are closed when returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        evictIdle();
+    }
+
+    private PooledConnection takeConnection() throws SQLException {
+        while (true) {
+            PooledConnection pooled;
+            synchronized (idle) {
+                pooled = idle.pollFirst();
+            }
+
+            if (pooled == null) {
+                var connection = target.getConnection();
+                pooled = new PooledConnection(connection, statementCacheSize == 0 ? null :
+                    new StatementCache(connection, statementCacheSize, statementCacheHits, statementsPrepared));
+                created.incrementAndGet();
+                return pooled;
+            }
+
+            var now = System.currentTimeMillis();
+            if (isExpired(pooled, now)
+                || (now - pooled.lastUsed > validationIntervalMillis && !isValid(pooled)))
+            {
+                discard(pooled);
+                continue;
+            }
+
+            return pooled;
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        try {
+            if (closed || pooled.broken || isExpired(pooled, System.currentTimeMillis())
+                || pooled.connection.isClosed())
+            {
+                discard(pooled);
+                if (pooled.broken) {
+                    // Other idle connections most probably are lost as well
+                    evictIdle();
+                }
+                return;
+            }
+
+            if (!pooled.connection.getAutoCommit()) {
+                pooled.connection.rollback();
+                pooled.connection.setAutoCommit(true);
+            }
+
+            pooled.lastUsed = System.currentTimeMillis();
+            synchronized (idle) {
+                idle.addFirst(pooled);
+            }
+        } catch (SQLException ex) {
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean isExpired(PooledConnection pooled, long now) {
+        return now - pooled.created > maxLifetimeMillis;
+    }
+
+    private static boolean isValid(PooledConnection pooled) {
+        try {
+            return pooled.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private static boolean isConnectionError(SQLException ex) {
+        var state = ex.getSQLState();
+        return ex instanceof SQLRecoverableException
+            || ex instanceof SQLNonTransientConnectionException
+            || (state != null && state.startsWith("08"));
+    }
+
+    private void evictIdle() {
+        while (true) {
+            PooledConnection pooled;
+            synchronized (idle) {
+                pooled = idle.pollFirst();
+            }
+            if (pooled == null) {
+                return;
+            }
+            discard(pooled);
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        discarded.incrementAndGet();
+        if (pooled.statements != null) {
+            pooled.statements.close();
+        }
+        try {
+            pooled.connection.close();
+        } catch (SQLException ex) {
+            // connection is unusable anyway
+        }
+    }
+
+    private final class Handler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean released = false;
+
+        Handler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!released) {
+                        released = true;
+                        release(pooled);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return released || pooled.connection.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Pooled " + pooled.connection;
+                }
+                // Physical connection must not escape, closing it directly would bypass release
+                case "unwrap" -> {
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                }
+                case "isWrapperFor" -> {
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return true;
+                    }
+                }
+            }
+
+            if (released) {
+                throw new SQLException("Connection is closed");
+            }
+
+            if (pooled.statements != null && method.getName().equals("prepareStatement") && args.length == 1) {
+                try {
+                    return pooled.statements.prepareStatement((Connection) proxy, (String) args[0]);
+                } catch (SQLException ex) {
+                    if (isConnectionError(ex)) {
+                        pooled.broken = true;
+                    }
+                    throw ex;
+                }
+            }
+
+            try {
+                return method.invoke(pooled.connection, args);
+            } catch (InvocationTargetException ex) {
+                if (ex.getCause() instanceof SQLException sqlException && isConnectionError(sqlException)) {
+                    pooled.broken = true;
+                }
+                throw ex.getCause();
+            }
+        }
+    }
+
+    // DataSource
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return target.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        target.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        target.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return target.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return target.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(this) ? iface.cast(this) : target.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || target.isWrapperFor(iface);
+    }
+
+    public static final class Builder {
+        private final DataSource target;
+        private int maxSize = 8;
+        private long timeoutMillis = TimeUnit.SECONDS.toMillis(30);
+        private long validationIntervalMillis = TimeUnit.SECONDS.toMillis(30);
+        private long maxLifetimeMillis = TimeUnit.MINUTES.toMillis(30);
+        private int statementCacheSize = 64;
+
+        public Builder(DataSource target) {
+            this.target = target;
+        }
+
+        public Builder maxSize(int maxSize) {
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        public Builder timeout(long timeout, TimeUnit unit) {
+            this.timeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        public Builder validationInterval(long interval, TimeUnit unit) {
+            this.validationIntervalMillis = unit.toMillis(interval);
+            return this;
+        }
+
+        public Builder maxLifetime(long lifetime, TimeUnit unit) {
+            this.maxLifetimeMillis = unit.toMillis(lifetime);
+            return this;
+        }
+
+        /**
+         * Sets maximum number of prepared statements cached per connection, 0 disables statement cache.
+         *
+         * @param statementCacheSize statement cache size
+         * @return this builder
+         */
+        public Builder statementCacheSize(int statementCacheSize) {
+            this.statementCacheSize = statementCacheSize;
+            return this;
+        }
+
+        public ConnectionPool build() {
+            if (target == null) {
+                throw new IllegalStateException("Target data source must not be null");
+            }
+            if (maxSize < 1) {
+                throw new IllegalStateException("Pool size must be >= 1");
+            }
+            if (statementCacheSize < 0) {
+                throw new IllegalStateException("Statement cache size must be >= 0");
+            }
+            return new ConnectionPool(target, maxSize, timeoutMillis, validationIntervalMillis, maxLifetimeMillis,
+                statementCacheSize);
+        }
+    }
+}
@@ -16,6 +16,15 @@ final class ContactRepository extends Repository<Contact> {
         super("contact", dataSource);
     }
 
+    @Override
+    protected String getColumns() {
+        return """
+            uuid, name, type, phone, mobile,
+            email, web, comment, street, city,
+            country, zip, icon_uuid, created, modified
+            """;
+    }
+
     @Override
     protected String getInsertSql() {
         return """
@@ -52,22 +61,23 @@ final class ContactRepository extends Repository<Contact> {
     }
 
     protected Contact fromResultSet(ResultSet rs) throws SQLException {
+        var index = 1;
         return new Contact(
-            getUuid(rs, "uuid"),
-            rs.getString("name"),
-            getEnum(rs, "type", ContactType.class),
-            rs.getString("phone"),
-            rs.getString("mobile"),
-            rs.getString("email"),
-            rs.getString("web"),
-            rs.getString("comment"),
-            rs.getString("street"),
-            rs.getString("city"),
-            rs.getString("country"),
-            rs.getString("zip"),
-            getUuid(rs, "icon_uuid"),
-            rs.getLong("created"),
-            rs.getLong("modified")
+            getUuid(rs, index++),
+            rs.getString(index++),
+            getEnum(rs, index++, ContactType.class),
+            rs.getString(index++),
+            rs.getString(index++),
+            rs.getString(index++),
+            rs.getString(index++),
+            rs.getString(index++),
+            rs.getString(index++),
+            rs.getString(index++),
+            rs.getString(index++),
+            rs.getString(index++),
+            getUuid(rs, index++),
+            rs.getLong(index++),
+            rs.getLong(index++)
         );
     }
 
@@ -75,7 +85,7 @@ final class ContactRepository extends Repository<Contact> {
     protected void toStatement(PreparedStatement st, Contact contact, boolean update) throws SQLException {
         var index = 1;
         if (!update) {
-            st.setString(index++, contact.uuid().toString());
+            setUuid(st, index++, contact.uuid());
         }
         st.setString(index++, contact.name());
         st.setString(index++, contact.type().name());
@@ -92,7 +102,7 @@ final class ContactRepository extends Repository<Contact> {
         st.setLong(index++, contact.created());
         st.setLong(index++, contact.modified());
         if (update) {
-            st.setString(index, contact.uuid().toString());
+            setUuid(st, index, contact.uuid());
         }
     }
 }
@@ -15,6 +15,15 @@ final class CurrencyRepository extends Repository<Currency> {
         super("currency", dataSource);
     }
 
+    @Override
+    protected String getColumns() {
+        return """
+            uuid, symbol, description, format_symbol, format_symbol_pos,
+            show_format_symbol, def, rate, rate_direction, use_th_separator,
+            created, modified
+            """;
+    }
+
     @Override
     protected String getInsertSql() {
         return """
@@ -48,19 +57,20 @@ final class CurrencyRepository extends Repository<Currency> {
     }
 
     protected Currency fromResultSet(ResultSet rs) throws SQLException {
+        var index = 1;
         return new Currency(
-            getUuid(rs, "uuid"),
-            rs.getString("symbol"),
-            rs.getString("description"),
-            rs.getString("format_symbol"),
-            rs.getInt("format_symbol_pos"),
-            getBoolean(rs, "show_format_symbol"),
-            getBoolean(rs, "def"),
-            rs.getBigDecimal("rate"),
-            rs.getInt("rate_direction"),
-            getBoolean(rs, "use_th_separator"),
-            rs.getLong("created"),
-            rs.getLong("modified")
+            getUuid(rs, index++),
+            rs.getString(index++),
+            rs.getString(index++),
+            rs.getString(index++),
+            rs.getInt(index++),
+            getBoolean(rs, index++),
+            getBoolean(rs, index++),
+            rs.getBigDecimal(index++),
+            rs.getInt(index++),
+            getBoolean(rs, index++),
+            rs.getLong(index++),
+            rs.getLong(index++)
         );
     }
 
@@ -68,7 +78,7 @@ final class CurrencyRepository extends Repository<Currency> {
     protected void toStatement(PreparedStatement st, Currency currency, boolean update) throws SQLException {
         var index = 1;
         if (!update) {
-            st.setString(index++, currency.uuid().toString());
+            setUuid(st, index++, currency.uuid());
         }
         st.setString(index++, currency.symbol());
         st.setString(index++, currency.description());
@@ -82,7 +92,7 @@ final class CurrencyRepository extends Repository<Currency> {
         st.setLong(index++, currency.created());
         st.setLong(index++, currency.modified());
         if (update) {
-            st.setString(index, currency.uuid().toString());
+            setUuid(st, index, currency.uuid());
         }
     }
 }
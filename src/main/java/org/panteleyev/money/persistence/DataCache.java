@@ -16,14 +16,22 @@ import org.panteleyev.money.model.MoneyRecord;
 import org.panteleyev.money.model.Transaction;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.WeakHashMap;
 import java.util.function.Predicate;
+import java.util.stream.Collector;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -37,10 +45,69 @@ public class DataCache {
     private final ObservableList<Account> accounts = FXCollections.observableArrayList();
     private final ObservableList<Transaction> transactions = FXCollections.observableArrayList();
 
+    private final RecordIndex<Icon> iconIndex = new RecordIndex<>(icons);
+    private final RecordIndex<Category> categoryIndex = new RecordIndex<>(categories);
+    private final RecordIndex<Contact> contactIndex = new RecordIndex<>(contacts);
+    private final RecordIndex<Currency> currencyIndex = new RecordIndex<>(currencies);
+    private final RecordIndex<Account> accountIndex = new RecordIndex<>(accounts);
+    private final RecordIndex<Transaction> transactionIndex = new RecordIndex<>(transactions);
+
+    private final SecondaryIndex<CategoryType, Category> categoriesByType = categoryIndex.addSecondaryIndex(
+        new SecondaryIndex<>(c -> List.of(c.type()))
+    );
+
+    private final SecondaryIndex<CategoryType, Account> accountsByType = accountIndex.addSecondaryIndex(
+        new SecondaryIndex<>(a -> List.of(a.type()))
+    );
+    private final SecondaryIndex<UUID, Account> accountsByCategory = accountIndex.addSecondaryIndex(
+        new SecondaryIndex<>(a -> List.of(a.categoryUuid()))
+    );
+    private final SecondaryIndex<String, Account> accountsByNumber = accountIndex.addSecondaryIndex(
+        new SecondaryIndex<>(a -> Stream.of(a.getAccountNumberNoSpaces(), a.getCardNumberNoSpaces())
+            .filter(number -> !number.isEmpty())
+            .distinct()
+            .toList())
+    );
+
+    private final SecondaryIndex<UUID, Transaction> transactionsByAccount = transactionIndex.addSecondaryIndex(
+        new SecondaryIndex<>(t -> List.of(t.accountDebitedUuid(), t.accountCreditedUuid()))
+    );
+    private final SecondaryIndex<UUID, Transaction> transactionsByCategory = transactionIndex.addSecondaryIndex(
+        new SecondaryIndex<>(t -> List.of(t.accountDebitedCategoryUuid(), t.accountCreditedCategoryUuid()))
+    );
+    private final SecondaryIndex<UUID, Transaction> transactionsByParent = transactionIndex.addSecondaryIndex(
+        new SecondaryIndex<>(t -> t.parentUuid() == null ? List.of() : List.of(t.parentUuid()))
+    );
+    private final SecondaryIndex<YearMonth, Transaction> transactionsByMonth = transactionIndex.addSecondaryIndex(
+        new SecondaryIndex<>(t -> List.of(YearMonth.of(t.year(), t.month())))
+    );
+    private final SecondaryIndex<Integer, Transaction> transactionsByDate = transactionIndex.addSecondaryIndex(
+        new SecondaryIndex<>(t -> List.of(t.epochDay()), true)
+    );
+
+    // Null when the whole transaction history is resident
+    private TransactionWindow transactionWindow;
+    // Live range views, years they show are not evicted from the window
+    private final Set<TransactionRange> transactionRanges = Collections.newSetFromMap(new WeakHashMap<>());
+
     public static DataCache cache() {
         return INSTANCE;
     }
 
+    void setTransactionWindow(TransactionWindow transactionWindow) {
+        this.transactionWindow = transactionWindow;
+    }
+
+    void addTransactionRange(TransactionRange range) {
+        transactionRanges.add(range);
+    }
+
+    boolean isShownByRange(int year) {
+        var fromDay = Transaction.toEpochDay(year, 1, 1);
+        var toDay = Transaction.toEpochDay(year, 12, 31);
+        return transactionRanges.stream().anyMatch(range -> range.overlaps(fromDay, toDay));
+    }
+
     public void clear() {
         icons.clear();
         categories.clear();
@@ -58,31 +125,65 @@ public class DataCache {
         return collection.stream().filter(r -> r.uuid().equals(uuid)).findAny();
     }
 
-    private static <T extends MoneyRecord> void updateRecord(List<T> list, T record) {
-        for (int i = 0; i < list.size(); i++) {
-            if (list.get(i).uuid().equals(record.uuid())) {
-                list.set(i, record);
-                break;
-            }
-        }
+    /**
+     * Adds imported records and replaces existing records with the same uuid. Transactions outside of the resident
+     * window are not added, their cached copies are removed. Must be called on the FX thread.
+     */
+    void merge(Collection<Icon> icons, Collection<Category> categories, Collection<Currency> currencies,
+               Collection<Contact> contacts, Collection<Account> accounts, Collection<Transaction> transactions)
+    {
+        iconIndex.merge(icons);
+        categoryIndex.merge(categories);
+        currencyIndex.merge(currencies);
+        contactIndex.merge(contacts);
+        accountIndex.merge(accounts);
+        mergeTransactions(transactions);
     }
 
-    private static <T extends MoneyRecord> void removeRecord(Collection<T> collection, UUID uuid) {
-        for (var iterator = collection.iterator(); iterator.hasNext(); ) {
-            var record = iterator.next();
-            if (record.uuid().equals(uuid)) {
-                iterator.remove();
-                return;
+    /**
+     * Adds transactions and replaces existing transactions with the same uuid. Transactions outside of the resident
+     * window are not added, their cached copies are removed. Must be called on the FX thread.
+     *
+     * @param transactions transactions
+     */
+    void mergeTransactions(Collection<Transaction> transactions) {
+        if (transactionWindow == null) {
+            transactionIndex.merge(transactions);
+        } else {
+            var resident = new ArrayList<Transaction>(transactions.size());
+            for (var transaction : transactions) {
+                if (transactionWindow.isResident(transaction.year())) {
+                    resident.add(transaction);
+                } else {
+                    transactionWindow.addYear(transaction.year());
+                    transactionIndex.remove(transaction.uuid());
+                }
             }
+            transactionIndex.merge(resident);
         }
     }
 
+    /**
+     * Removes records with the specified uuids from all lists, each list is changed at once. Must be called on the
+     * FX thread.
+     *
+     * @param uuids uuids of deleted records
+     */
+    void removeAll(Set<UUID> uuids) {
+        transactionIndex.removeAll(uuids);
+        accountIndex.removeAll(uuids);
+        contactIndex.removeAll(uuids);
+        currencyIndex.removeAll(uuids);
+        categoryIndex.removeAll(uuids);
+        iconIndex.removeAll(uuids);
+    }
+
     ////////////////////////////////////////////////////////////////////////////
     // Icons
     ////////////////////////////////////////////////////////////////////////////
 
     public Optional<Icon> getIcon(UUID uuid) {
-        return getRecord(icons, uuid);
+        return iconIndex.get(uuid);
     }
 
     public ObservableList<Icon> getIcons() {
@@ -94,7 +195,7 @@ public class DataCache {
     }
 
     public void update(Icon icon) {
-        updateRecord(icons, icon);
+        iconIndex.update(icon);
     }
 
     ////////////////////////////////////////////////////////////////////////////
@@ -102,7 +203,7 @@ public class DataCache {
     ////////////////////////////////////////////////////////////////////////////
 
     public Optional<Category> getCategory(UUID uuid) {
-        return getRecord(categories, uuid);
+        return categoryIndex.get(uuid);
     }
 
     public ObservableList<Category> getCategories() {
@@ -110,17 +211,11 @@ public class DataCache {
     }
 
     public List<Category> getCategoriesByType(CategoryType... types) {
-        var typeList = List.of(types);
-
-        return getCategories().stream()
-            .filter(category -> typeList.contains(category.type()))
-            .toList();
+        return categoriesByType.get(List.of(types));
     }
 
     public List<Category> getCategoriesByType(EnumSet<CategoryType> types) {
-        return getCategories().stream()
-            .filter(category -> types.contains(category.type()))
-            .toList();
+        return categoriesByType.get(types);
     }
 
     public void add(Category category) {
@@ -128,7 +223,7 @@ public class DataCache {
     }
 
     public void update(Category category) {
-        updateRecord(categories, category);
+        categoryIndex.update(category);
     }
 
     ////////////////////////////////////////////////////////////////////////////
@@ -136,7 +231,7 @@ public class DataCache {
     ////////////////////////////////////////////////////////////////////////////
 
     public Optional<Currency> getCurrency(UUID uuid) {
-        return getRecord(currencies, uuid);
+        return currencyIndex.get(uuid);
     }
 
     public ObservableList<Currency> getCurrencies() {
@@ -152,7 +247,7 @@ public class DataCache {
     }
 
     public void update(Currency currency) {
-        updateRecord(currencies, currency);
+        currencyIndex.update(currency);
     }
 
     ////////////////////////////////////////////////////////////////////////////
@@ -160,7 +255,7 @@ public class DataCache {
     ////////////////////////////////////////////////////////////////////////////
 
     public Optional<Contact> getContact(UUID uuid) {
-        return getRecord(contacts, uuid);
+        return contactIndex.get(uuid);
     }
 
     public ObservableList<Contact> getContacts() {
@@ -172,7 +267,7 @@ public class DataCache {
     }
 
     public void update(Contact contact) {
-        updateRecord(contacts, contact);
+        contactIndex.update(contact);
     }
 
     ////////////////////////////////////////////////////////////////////////////
@@ -180,7 +275,7 @@ public class DataCache {
     ////////////////////////////////////////////////////////////////////////////
 
     public Optional<Account> getAccount(UUID uuid) {
-        return getRecord(accounts, uuid);
+        return accountIndex.get(uuid);
     }
 
     public ObservableList<Account> getAccounts() {
@@ -192,29 +287,30 @@ public class DataCache {
     }
 
     public List<Account> getAccountsByType(CategoryType type) {
-        return getAccounts().stream()
-            .filter(account -> account.type() == type)
-            .toList();
+        return accountsByType.get(type);
     }
 
     public List<Account> getAccountsByCategory(UUID uuid) {
-        return getAccounts().stream()
-            .filter(account -> account.categoryUuid().equals(uuid))
-            .toList();
+        return accountsByCategory.get(uuid);
     }
 
     public List<Account> getAccountsByCategoryId(UUID... ids) {
-        var catIDs = List.of(ids);
-
-        return getAccounts().stream()
-            .filter(account -> catIDs.contains(account.categoryUuid()))
-            .toList();
+        return accountsByCategory.get(List.of(ids));
     }
 
+    /**
+     * Returns enabled account with the specified account or card number. Spaces are ignored.
+     *
+     * @param accountNumber account or card number
+     * @return account
+     */
     public Optional<Account> getAccountByNumber(String accountNumber) {
-        return getAccounts().stream()
+        if (accountNumber == null) {
+            return Optional.empty();
+        }
+
+        return accountsByNumber.get(accountNumber.replaceAll(" ", "")).stream()
             .filter(Account::enabled)
-            .filter(a -> Objects.equals(a.getAccountNumberNoSpaces(), accountNumber))
             .findFirst();
     }
 
@@ -223,11 +319,11 @@ public class DataCache {
     }
 
     public void update(Account account) {
-        updateRecord(accounts, account);
+        accountIndex.update(account);
     }
 
     public void remove(Account account) {
-        removeRecord(accounts, account.uuid());
+        accountIndex.remove(account.uuid());
     }
 
     ////////////////////////////////////////////////////////////////////////////
@@ -235,7 +331,7 @@ public class DataCache {
     ////////////////////////////////////////////////////////////////////////////
 
     public Optional<Transaction> getTransaction(UUID uuid) {
-        return getRecord(transactions, uuid);
+        return transactionIndex.get(uuid);
     }
 
     public ObservableList<Transaction> getTransactions() {
@@ -243,44 +339,110 @@ public class DataCache {
     }
 
     public List<Transaction> getTransactions(Collection<Account> accounts) {
-        var ids = accounts.stream()
+        return transactionsByAccount.get(accounts.stream()
             .map(Account::uuid)
-            .toList();
-
-        return getTransactions().stream()
-            .filter(tr -> ids.contains(tr.accountDebitedUuid()) || ids.contains(tr.accountCreditedUuid()))
-            .toList();
+            .toList());
     }
 
+    /**
+     * Returns details of the parent transaction. Details are created on the date of the parent, thus details of a
+     * resident parent are taken from the cache. Details of other parents are read from the database.
+     *
+     * @param parent parent transaction
+     * @return details
+     */
     public List<Transaction> getTransactionDetails(Transaction parent) {
-        return getTransactions().stream()
-            .filter(t -> Objects.equals(t.parentUuid(), parent.uuid()))
-            .toList();
+        return transactionWindow == null || transactionWindow.isResident(parent.year()) ?
+            transactionsByParent.get(parent.uuid()) : transactionWindow.getByParent(parent.uuid());
     }
 
     public List<Transaction> getTransactions(int month, int year) {
-        return getTransactions().stream()
-            .filter(tr -> tr.month() == month && tr.year() == year)
+        if (transactionWindow != null) {
+            transactionWindow.loadYears(List.of(year));
+        }
+        return transactionsByMonth.get(YearMonth.of(year, month));
+    }
+
+    /**
+     * Returns transactions within the specified date range. Transactions outside of the resident window are loaded
+     * on demand.
+     *
+     * @param from first date, inclusive, null means no lower bound
+     * @param to last date, inclusive, null means no upper bound
+     * @return transactions
+     */
+    public List<Transaction> getTransactions(LocalDate from, LocalDate to) {
+        if (from == null && to == null) {
+            if (transactionWindow != null) {
+                transactionWindow.load(Integer.MIN_VALUE, Integer.MAX_VALUE);
+            }
+            return List.copyOf(getTransactions());
+        }
+
+        var fromDay = from == null ? Integer.MIN_VALUE : (int) from.toEpochDay();
+        var toDay = to == null ? Integer.MAX_VALUE : (int) to.toEpochDay();
+        return getTransactionsByEpochDay(fromDay, toDay);
+    }
+
+    /**
+     * Returns transactions within the specified range of epoch days. Transactions outside of the resident window
+     * are loaded on demand.
+     *
+     * @param fromDay first epoch day, inclusive
+     * @param toDay last epoch day, inclusive
+     * @return transactions
+     * @see Transaction#epochDay()
+     */
+    public List<Transaction> getTransactionsByEpochDay(int fromDay, int toDay) {
+        if (transactionWindow != null) {
+            transactionWindow.load(fromDay, toDay);
+        }
+        return getResidentTransactions(fromDay, toDay);
+    }
+
+    /**
+     * Returns resident transactions within the specified range of epoch days. This method never loads transactions.
+     *
+     * @param fromDay first epoch day, inclusive
+     * @param toDay last epoch day, inclusive
+     * @return transactions
+     */
+    List<Transaction> getResidentTransactions(int fromDay, int toDay) {
+        return fromDay > toDay ? List.of() : transactionsByDate.getRange(fromDay, toDay);
+    }
+
+    /**
+     * Returns years that have at least one transaction, including years outside of the resident window.
+     *
+     * @return years in ascending order
+     */
+    public List<Integer> getTransactionYears() {
+        var resident = transactionsByMonth.keys().stream()
+            .map(YearMonth::getYear);
+        var stored = transactionWindow == null ? Stream.<Integer>empty() : transactionWindow.getYears().stream();
+
+        return Stream.concat(resident, stored)
+            .distinct()
+            .sorted()
             .toList();
     }
 
+    /**
+     * Returns all transactions of the account. Transactions outside of the resident window are read from the
+     * database but not added to the cache.
+     *
+     * @param account account
+     * @return transactions
+     */
     public List<Transaction> getTransactions(Account account) {
-        var uuid = account.uuid();
-        return getTransactions().stream()
-            .filter(tr -> Objects.equals(tr.accountDebitedUuid(), uuid)
-                || Objects.equals(tr.accountCreditedUuid(), uuid))
-            .toList();
+        return transactionWindow == null ?
+            transactionsByAccount.get(account.uuid()) : transactionWindow.getByAccount(account.uuid());
     }
 
     public List<Transaction> getTransactionsByCategories(Collection<Category> categories) {
-        var uuids = categories.stream()
+        return transactionsByCategory.get(categories.stream()
             .map(Category::uuid)
-            .toList();
-
-        return getTransactions().stream()
-            .filter(tr -> uuids.contains(tr.accountDebitedCategoryUuid())
-                || uuids.contains(tr.accountCreditedCategoryUuid()))
-            .toList();
+            .toList());
     }
 
     public Set<String> getUniqueTransactionComments() {
@@ -291,12 +453,8 @@ public class DataCache {
     }
 
     public long getTransactionCount(Account account) {
-        var uuid = account.uuid();
-
-        return getTransactions().stream()
-            .filter(tr -> Objects.equals(tr.accountDebitedUuid(), uuid)
-                || Objects.equals(tr.accountCreditedUuid(), uuid))
-            .count();
+        return transactionWindow == null ?
+            transactionsByAccount.count(account.uuid()) : transactionWindow.countByAccount(account.uuid());
     }
 
     public Stream<Transaction> getTransactions(Predicate<Transaction> filter) {
@@ -308,11 +466,11 @@ public class DataCache {
     }
 
     public void update(Transaction transaction) {
-        updateRecord(transactions, transaction);
+        transactionIndex.update(transaction);
     }
 
     public void remove(Transaction transaction) {
-        removeRecord(transactions, transaction.uuid());
+        transactionIndex.remove(transaction.uuid());
     }
 
     /**
@@ -325,24 +483,110 @@ public class DataCache {
         return getTransactions(account).stream()
             .filter(t -> t.parentUuid() == null)
             .filter(filter)
-            .map(t -> {
-                var amount = t.amount();
-                if (Objects.equals(account.uuid(), t.accountCreditedUuid())) {
-                    // handle conversion rate
-                    var rate = t.rate();
-                    if (rate.compareTo(BigDecimal.ZERO) != 0 && rate.compareTo(BigDecimal.ONE) != 0) {
-                        amount = t.rateDirection() == 0 ?
-                            amount.divide(rate, RoundingMode.HALF_UP) : amount.multiply(rate);
-                    }
-                } else {
-                    amount = amount.negate();
-                }
-                return amount;
-            })
+            .map(t -> calculateBalanceDelta(account.uuid(), t))
             .reduce(total ? account.openingBalance().add(account.accountLimit()) : BigDecimal.ZERO,
                 BigDecimal::add);
     }
 
+    /**
+     * Calculates total and waiting balances of all accounts in a single pass over the transaction list.
+     * Accounts without transactions are mapped to zero balances. Initial balance is not included.
+     *
+     * @param parallel whether transactions should be processed in parallel
+     * @return account uuid to balance map
+     */
+    public Map<UUID, Balance> calculateBalances(boolean parallel) {
+        // Snapshot is required as observable list must not be accessed concurrently
+        return calculateBalances(List.copyOf(transactions), accounts, parallel);
+    }
+
+    /**
+     * Calculates total and waiting balances of accounts in a single pass over the transaction list. Accounts
+     * without transactions are mapped to zero balances. Initial balance is not included.
+     *
+     * @param transactions transactions, list must not be modified during calculation
+     * @param accounts accounts that must be present in the result
+     * @param parallel whether transactions should be processed in parallel
+     * @return account uuid to balance map
+     */
+    public static Map<UUID, Balance> calculateBalances(List<Transaction> transactions,
+                                                       Collection<Account> accounts,
+                                                       boolean parallel)
+    {
+        var stream = parallel ? transactions.parallelStream() : transactions.stream();
+
+        var result = stream
+            .filter(t -> t.parentUuid() == null)
+            .collect(Collector.of(
+                HashMap<UUID, Balance>::new,
+                (map, t) -> {
+                    addBalance(map, t.accountDebitedUuid(), t);
+                    if (!Objects.equals(t.accountDebitedUuid(), t.accountCreditedUuid())) {
+                        addBalance(map, t.accountCreditedUuid(), t);
+                    }
+                },
+                (left, right) -> {
+                    right.forEach((uuid, balance) -> left.merge(uuid, balance, Balance::add));
+                    return left;
+                }
+            ));
+
+        for (var account : accounts) {
+            result.putIfAbsent(account.uuid(), Balance.ZERO);
+        }
+        return result;
+    }
+
+    private static void addBalance(Map<UUID, Balance> map, UUID accountUuid, Transaction t) {
+        var delta = calculateBalanceDelta(accountUuid, t);
+        map.merge(accountUuid, new Balance(delta, t.checked() ? BigDecimal.ZERO : delta), Balance::add);
+    }
+
+    /**
+     * Account balance as stored in {@link Account#total()} and {@link Account#totalWaiting()}.
+     *
+     * @param total balance of all transactions
+     * @param waiting balance of unchecked transactions
+     */
+    public record Balance(BigDecimal total, BigDecimal waiting) {
+        public static final Balance ZERO = new Balance(BigDecimal.ZERO, BigDecimal.ZERO);
+
+        public Balance add(Balance that) {
+            return new Balance(total.add(that.total), waiting.add(that.waiting));
+        }
+    }
+
+    /**
+     * Calculates contribution of the transaction to the balance of the specified account. Transaction details
+     * and transactions not related to the account do not contribute.
+     *
+     * @param accountUuid account uuid
+     * @param t transaction
+     * @return balance delta
+     */
+    public static BigDecimal calculateBalanceDelta(UUID accountUuid, Transaction t) {
+        if (t.parentUuid() != null) {
+            return BigDecimal.ZERO;
+        }
+
+        var amount = t.amount();
+        if (Objects.equals(accountUuid, t.accountCreditedUuid())) {
+            // handle conversion rate
+            var rate = t.rate();
+            if (rate.compareTo(BigDecimal.ZERO) != 0 && rate.compareTo(BigDecimal.ONE) != 0) {
+                // Converted amount is rounded to the column scale exactly as the stored total is
+                amount = t.rateDirection() == 0 ?
+                    amount.divide(rate, MoneyDAO.FIELD_SCALE, RoundingMode.HALF_UP) :
+                    amount.multiply(rate).setScale(MoneyDAO.FIELD_SCALE, RoundingMode.HALF_UP);
+            }
+            return amount;
+        } else if (Objects.equals(accountUuid, t.accountDebitedUuid())) {
+            return amount.negate();
+        } else {
+            return BigDecimal.ZERO;
+        }
+    }
+
     public BigDecimal calculateBalance(List<Transaction> transactions) {
         return transactions.stream()
             .filter(t -> t.parentUuid() == null)
@@ -352,7 +596,8 @@ public class DataCache {
                 var rate = t.rate();
                 if (rate.compareTo(BigDecimal.ZERO) != 0 && rate.compareTo(BigDecimal.ONE) != 0) {
                     amount = t.rateDirection() == 0 ?
-                        amount.divide(rate, RoundingMode.HALF_UP) : amount.multiply(rate);
+                        amount.divide(rate, MoneyDAO.FIELD_SCALE, RoundingMode.HALF_UP) :
+                        amount.multiply(rate).setScale(MoneyDAO.FIELD_SCALE, RoundingMode.HALF_UP);
                 }
                 return amount;
             })
@@ -0,0 +1,102 @@
+/*
+ Copyright (c) Petr Panteleyev. All rights reserved.
+ Licensed under the BSD license. See LICENSE file in the project root for full license information.
+ */
+package org.panteleyev.money.persistence;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import static org.panteleyev.money.persistence.Repository.getUuid;
+import static org.panteleyev.money.persistence.Repository.setUuid;
+
+/**
+ * Tombstones of deleted records. Tombstones are written by the application in the same database transaction as
+ * the delete itself, thus other clients of the same schema may remove deleted records from their caches without
+ * full reload.
+ */
+final class DeletedRecords {
+    private static final String INSERT_SQL = "INSERT INTO deleted_record (uuid, table_name, deleted) VALUES (?, ?, ?)";
+
+    private DeletedRecords() {
+    }
+
+    /**
+     * Inserts tombstones.
+     *
+     * @param conn connection
+     * @param batchSize JDBC batch size
+     * @param tableName name of the table records were deleted from
+     * @param uuids uuids of deleted records
+     * @throws SQLException if insert fails
+     */
+    static void insert(Connection conn, int batchSize, String tableName, List<UUID> uuids) throws SQLException {
+        if (uuids.isEmpty()) {
+            return;
+        }
+
+        var deleted = System.currentTimeMillis();
+        try (var st = conn.prepareStatement(INSERT_SQL)) {
+            int count = 0;
+
+            for (var uuid : uuids) {
+                setUuid(st, 1, uuid);
+                st.setString(2, tableName);
+                st.setLong(3, deleted);
+                st.addBatch();
+
+                if (++count % batchSize == 0) {
+                    st.executeBatch();
+                }
+            }
+
+            st.executeBatch();
+        }
+    }
+
+    /**
+     * Returns records deleted after the specified time.
+     *
+     * @param dataSource data source
+     * @param since time in milliseconds, exclusive
+     * @return uuid to deletion time map
+     */
+    static Map<UUID, Long> getSince(DataSource dataSource, long since) {
+        try (var conn = dataSource.getConnection();
+             var st = conn.prepareStatement("SELECT uuid, deleted FROM deleted_record WHERE deleted > ?"))
+        {
+            st.setLong(1, since);
+            var result = new HashMap<UUID, Long>();
+            try (var rs = st.executeQuery()) {
+                while (rs.next()) {
+                    result.merge(getUuid(rs, 1), rs.getLong(2), Math::max);
+                }
+            }
+            return result;
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Removes tombstones older than the specified time.
+     *
+     * @param dataSource data source
+     * @param before time in milliseconds, exclusive
+     * @return number of removed tombstones
+     */
+    static int purge(DataSource dataSource, long before) {
+        try (var conn = dataSource.getConnection();
+             var st = conn.prepareStatement("DELETE FROM deleted_record WHERE deleted < ?"))
+        {
+            st.setLong(1, before);
+            return st.executeUpdate();
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+}
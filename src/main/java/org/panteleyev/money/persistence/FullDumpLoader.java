@@ -0,0 +1,255 @@
+/*
+ Copyright (c) Petr Panteleyev. All rights reserved.
+ Licensed under the BSD license. See LICENSE file in the project root for full license information.
+ */
+package org.panteleyev.money.persistence;
+
+import org.panteleyev.money.model.Account;
+import org.panteleyev.money.model.Category;
+import org.panteleyev.money.model.Contact;
+import org.panteleyev.money.model.Currency;
+import org.panteleyev.money.model.Icon;
+import org.panteleyev.money.model.MoneyRecord;
+import org.panteleyev.money.model.Transaction;
+import java.sql.Connection;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Inserts records of a full dump into empty tables as they are parsed.
+ * <p>
+ * Reference records are few, they are kept until the first transaction or the end of the dump and then inserted
+ * in foreign key order. Transactions are inserted in bounded batches. A detail transaction whose parent has not been
+ * seen yet is deferred until the parent arrives. Transaction records are not kept after they are inserted, yet uuids
+ * of all inserted transactions are kept to resolve parents, thus memory consumption still grows with the number of
+ * transactions, though much slower than the dump itself.
+ * <p>
+ * References are checked by the loader as foreign key checks may be disabled during bulk load. A record that
+ * references a missing record and a detail whose parent is not found reject the whole dump.
+ * <p>
+ * Validating loader performs the same checks without database access. It is used to check the dump before existing
+ * tables are dropped.
+ */
+final class FullDumpLoader implements Consumer<MoneyRecord> {
+    private final Connection conn;
+    private final int batchSize;
+    private final boolean validateOnly;
+
+    private final Repository<Icon> iconRepository;
+    private final Repository<Category> categoryRepository;
+    private final Repository<Currency> currencyRepository;
+    private final Repository<Contact> contactRepository;
+    private final Repository<Account> accountRepository;
+    private final Repository<Transaction> transactionRepository;
+
+    private final List<Icon> icons = new ArrayList<>();
+    private final List<Category> categories = new ArrayList<>();
+    private final List<Currency> currencies = new ArrayList<>();
+    private final List<Contact> contacts = new ArrayList<>();
+    private final List<Account> accounts = new ArrayList<>();
+    private boolean referencesInserted;
+
+    // Reference records are few, their uuids are kept to check transactions
+    private final Set<UUID> iconUuids = new HashSet<>();
+    private final Set<UUID> categoryUuids = new HashSet<>();
+    private final Set<UUID> currencyUuids = new HashSet<>();
+    private final Set<UUID> contactUuids = new HashSet<>();
+    private final Set<UUID> accountUuids = new HashSet<>();
+
+    private final List<Transaction> batch = new ArrayList<>();
+    // Transactions already added to the batch, details of these are not deferred
+    private final Set<UUID> parents = new HashSet<>();
+    private final Map<UUID, List<Transaction>> deferred = new HashMap<>();
+
+    private int count;
+
+    FullDumpLoader(Connection conn, int batchSize,
+                   Repository<Icon> iconRepository,
+                   Repository<Category> categoryRepository,
+                   Repository<Currency> currencyRepository,
+                   Repository<Contact> contactRepository,
+                   Repository<Account> accountRepository,
+                   Repository<Transaction> transactionRepository)
+    {
+        this(conn, batchSize, false, iconRepository, categoryRepository, currencyRepository, contactRepository,
+            accountRepository, transactionRepository);
+    }
+
+    private FullDumpLoader(Connection conn, int batchSize, boolean validateOnly,
+                           Repository<Icon> iconRepository,
+                           Repository<Category> categoryRepository,
+                           Repository<Currency> currencyRepository,
+                           Repository<Contact> contactRepository,
+                           Repository<Account> accountRepository,
+                           Repository<Transaction> transactionRepository)
+    {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be >= 1");
+        }
+
+        this.conn = conn;
+        this.batchSize = batchSize;
+        this.validateOnly = validateOnly;
+        this.iconRepository = iconRepository;
+        this.categoryRepository = categoryRepository;
+        this.currencyRepository = currencyRepository;
+        this.contactRepository = contactRepository;
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+    }
+
+    /**
+     * Creates loader that checks records but does not insert them.
+     *
+     * @param batchSize batch size, bounds memory consumption the same way as for the real load
+     * @return validating loader
+     */
+    static FullDumpLoader validator(int batchSize) {
+        return new FullDumpLoader(null, batchSize, true, null, null, null, null, null, null);
+    }
+
+    /**
+     * Returns number of records passed to the loader.
+     *
+     * @return number of records
+     */
+    int getCount() {
+        return count;
+    }
+
+    @Override
+    public void accept(MoneyRecord record) {
+        count++;
+        if (record instanceof Transaction transaction) {
+            addTransaction(transaction);
+        } else {
+            if (referencesInserted) {
+                throw new IllegalStateException("Reference records must precede transactions");
+            }
+
+            if (record instanceof Icon icon) {
+                icons.add(icon);
+            } else if (record instanceof Category category) {
+                categories.add(category);
+            } else if (record instanceof Currency currency) {
+                currencies.add(currency);
+            } else if (record instanceof Contact contact) {
+                contacts.add(contact);
+            } else if (record instanceof Account account) {
+                accounts.add(account);
+            } else {
+                throw new IllegalArgumentException("Unsupported record " + record.getClass().getName());
+            }
+        }
+    }
+
+    /**
+     * Inserts all remaining records.
+     *
+     * @throws IllegalStateException if parent of any detail was not found
+     */
+    void finish() {
+        insertReferences();
+        if (!deferred.isEmpty()) {
+            var parentUuid = deferred.keySet().iterator().next();
+            throw new IllegalStateException("Parent transaction " + parentUuid + " not found");
+        }
+        insertBatch();
+    }
+
+    private void addTransaction(Transaction transaction) {
+        insertReferences();
+
+        checkReference(transaction, transaction.accountDebitedUuid(), accountUuids);
+        checkReference(transaction, transaction.accountCreditedUuid(), accountUuids);
+        checkReference(transaction, transaction.accountDebitedCategoryUuid(), categoryUuids);
+        checkReference(transaction, transaction.accountCreditedCategoryUuid(), categoryUuids);
+        checkReference(transaction, transaction.contactUuid(), contactUuids);
+
+        var parentUuid = transaction.parentUuid();
+        if (parentUuid != null && !parentUuid.equals(transaction.uuid()) && !parents.contains(parentUuid)) {
+            deferred.computeIfAbsent(parentUuid, k -> new ArrayList<>()).add(transaction);
+            return;
+        }
+
+        // Details are inserted right after their parent, details may have their own details
+        var queue = new ArrayDeque<Transaction>();
+        queue.add(transaction);
+        while (!queue.isEmpty()) {
+            var next = queue.poll();
+            addToBatch(next);
+            var details = deferred.remove(next.uuid());
+            if (details != null) {
+                queue.addAll(details);
+            }
+        }
+    }
+
+    private void addToBatch(Transaction transaction) {
+        parents.add(transaction.uuid());
+
+        batch.add(transaction);
+        if (batch.size() >= batchSize) {
+            insertBatch();
+        }
+    }
+
+    private void insertBatch() {
+        if (!validateOnly) {
+            transactionRepository.insert(conn, batchSize, batch);
+        }
+        batch.clear();
+    }
+
+    private void insertReferences() {
+        if (referencesInserted) {
+            return;
+        }
+
+        icons.forEach(icon -> iconUuids.add(icon.uuid()));
+        categories.forEach(category -> categoryUuids.add(category.uuid()));
+        currencies.forEach(currency -> currencyUuids.add(currency.uuid()));
+        contacts.forEach(contact -> contactUuids.add(contact.uuid()));
+        accounts.forEach(account -> accountUuids.add(account.uuid()));
+
+        for (var category : categories) {
+            checkReference(category, category.iconUuid(), iconUuids);
+        }
+        for (var contact : contacts) {
+            checkReference(contact, contact.iconUuid(), iconUuids);
+        }
+        for (var account : accounts) {
+            checkReference(account, account.categoryUuid(), categoryUuids);
+            checkReference(account, account.currencyUuid(), currencyUuids);
+            checkReference(account, account.iconUuid(), iconUuids);
+        }
+
+        if (!validateOnly) {
+            iconRepository.insert(conn, batchSize, icons);
+            categoryRepository.insert(conn, batchSize, categories);
+            currencyRepository.insert(conn, batchSize, currencies);
+            contactRepository.insert(conn, batchSize, contacts);
+            accountRepository.insert(conn, batchSize, accounts);
+        }
+
+        icons.clear();
+        categories.clear();
+        currencies.clear();
+        contacts.clear();
+        accounts.clear();
+        referencesInserted = true;
+    }
+
+    private static void checkReference(MoneyRecord record, UUID reference, Set<UUID> known) {
+        if (reference != null && !known.contains(reference)) {
+            throw new IllegalStateException("Record " + record.uuid() + " references missing record " + reference);
+        }
+    }
+}
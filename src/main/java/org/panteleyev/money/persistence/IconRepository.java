@@ -15,6 +15,13 @@ final class IconRepository extends Repository<Icon> {
         super("icon", dataSource);
     }
 
+    @Override
+    protected String getColumns() {
+        return """
+            uuid, name, bytes, created, modified
+            """;
+    }
+
     @Override
     protected String getInsertSql() {
         return """
@@ -40,12 +47,13 @@ final class IconRepository extends Repository<Icon> {
 
     @Override
     protected Icon fromResultSet(ResultSet rs) throws SQLException {
+        var index = 1;
         return new Icon(
-            getUuid(rs, "uuid"),
-            rs.getString("name"),
-            rs.getBytes("bytes"),
-            rs.getLong("created"),
-            rs.getLong("modified")
+            getUuid(rs, index++),
+            rs.getString(index++),
+            rs.getBytes(index++),
+            rs.getLong(index++),
+            rs.getLong(index++)
         );
     }
 
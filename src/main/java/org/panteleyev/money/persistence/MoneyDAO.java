@@ -4,6 +4,7 @@
  */
 package org.panteleyev.money.persistence;
 
+import com.mysql.cj.jdbc.JdbcConnection;
 import com.mysql.cj.jdbc.MysqlDataSource;
 import javafx.application.Platform;
 import org.panteleyev.money.model.Account;
@@ -15,22 +16,50 @@ import org.panteleyev.money.model.MoneyRecord;
 import org.panteleyev.money.model.Transaction;
 import org.panteleyev.money.xml.Import;
 import javax.sql.DataSource;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.stream.Stream;
 import static org.panteleyev.money.persistence.DataCache.cache;
 
 public class MoneyDAO {
+    private final static Logger LOGGER = Logger.getLogger(MoneyDAO.class.getName());
+
     private static final MoneyDAO MONEY_DAO = new MoneyDAO();
 
     private DataSource dataSource;
@@ -42,8 +71,43 @@ public class MoneyDAO {
     private TransactionRepository transactionRepository;
     private IconRepository iconRepository;
 
+    // Transaction residency, see setTransactionResidency
+    private int residentYears = 0;
+    private int maxLoadedYears = DEFAULT_MAX_LOADED_YEARS;
+    private TransactionWindow transactionWindow;
+    // Null unless write-behind mode is enabled
+    private volatile WriteBehindQueue writeQueue;
+    // Database server time of the latest preload or refresh
+    private volatile long highWaterMark;
+    // Uuids deleted locally while refresh is in progress, one set per running refresh
+    private final List<Set<UUID>> refreshDeletions = new CopyOnWriteArrayList<>();
+    // Null unless periodic refresh is started
+    private ScheduledExecutorService refreshExecutor;
+    // Transaction writes hold the read lock, balance drift is detected under the write lock, thus reconciliation
+    // never sees a transaction without its balance change whatever snapshot the database provides
+    private final ReadWriteLock balanceLock = new ReentrantReadWriteLock();
+    // Last operation submitted by the asynchronous API, see submit
+    private CompletableFuture<?> asyncTail = CompletableFuture.completedFuture(null);
+
     private static final DataCache cache = DataCache.cache();
 
+    private static final Executor RECONCILIATION_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        var thread = new Thread(r, "balance-reconciliation");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final Executor ASYNC_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        var thread = new Thread(r, "dao-async");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        // Pending changes must not be lost on exit
+        Runtime.getRuntime().addShutdownHook(new Thread(MONEY_DAO::closeWriteQueue, "write-behind-shutdown"));
+    }
+
     public static MoneyDAO getDao() {
         return MONEY_DAO;
     }
@@ -65,12 +129,25 @@ public class MoneyDAO {
             .thenComparing(Transaction::day)
             .thenComparingLong(Transaction::created);
 
+    private static final Comparator<Transaction> COMPARE_TRANSACTION_BY_MONTH =
+        Comparator.comparing(Transaction::year).thenComparing(Transaction::month);
+
     public static final Comparator<Transaction> COMPARE_TRANSACTION_BY_DAY =
         Comparator.comparingInt(Transaction::day).thenComparingLong(Transaction::created);
 
     public static final int FIELD_SCALE = 6;
 
     private static final int BATCH_SIZE = 1000;
+    // Rewritten by the driver into statements limited by max_allowed_packet
+    private static final int BULK_LOAD_BATCH_SIZE = 10_000;
+    private static final int PRELOAD_THREADS = 4;
+    private static final int PUBLICATION_CHUNK_SIZE = 2000;
+    private static final int DEFAULT_MAX_LOADED_YEARS = 5;
+    private static final Duration WRITE_BEHIND_LATENCY = Duration.ofMillis(500);
+    // Modification time is set by the client before the record is written, client clocks may differ from the
+    // database server clock
+    private static final Duration REFRESH_OVERLAP = Duration.ofMinutes(1);
+    private static final Duration TOMBSTONE_RETENTION = Duration.ofDays(30);
 
     public static final Consumer<String> IGNORE_PROGRESS = x -> { };
 
@@ -104,12 +181,12 @@ public class MoneyDAO {
     ////////////////////////////////////////////////////////////////////////////
 
     public void insertIcon(Icon icon) {
-        iconRepository.insert(icon);
+        insertRecord(iconRepository, icon);
         cache.add(icon);
     }
 
     public void updateIcon(Icon icon) {
-        iconRepository.update(icon);
+        updateRecord(iconRepository, icon);
         cache.update(icon);
     }
 
@@ -118,12 +195,12 @@ public class MoneyDAO {
     ////////////////////////////////////////////////////////////////////////////
 
     public void insertCategory(Category category) {
-        categoryRepository.insert(category);
+        insertRecord(categoryRepository, category);
         cache.add(category);
     }
 
     public void updateCategory(Category category) {
-        categoryRepository.update(category);
+        updateRecord(categoryRepository, category);
         cache.update(category);
     }
 
@@ -132,12 +209,12 @@ public class MoneyDAO {
     ////////////////////////////////////////////////////////////////////////////
 
     public void insertCurrency(Currency currency) {
-        currencyRepository.insert(currency);
+        insertRecord(currencyRepository, currency);
         cache.add(currency);
     }
 
     public void updateCurrency(Currency currency) {
-        currencyRepository.update(currency);
+        updateRecord(currencyRepository, currency);
         cache.update(currency);
     }
 
@@ -146,12 +223,12 @@ public class MoneyDAO {
     ////////////////////////////////////////////////////////////////////////////
 
     public void insertContact(Contact contact) {
-        contactRepository.insert(contact);
+        insertRecord(contactRepository, contact);
         cache.add(contact);
     }
 
     public void updateContact(Contact contact) {
-        contactRepository.update(contact);
+        updateRecord(contactRepository, contact);
         cache.update(contact);
     }
 
@@ -160,18 +237,18 @@ public class MoneyDAO {
     ////////////////////////////////////////////////////////////////////////////
 
     public void insertAccount(Account account) {
-        accountRepository.insert(account);
+        insertRecord(accountRepository, account);
         cache.add(account);
     }
 
     public void updateAccount(Account account) {
-        accountRepository.update(account);
+        updateRecord(accountRepository, account);
         cache.update(account);
     }
 
     public void deleteAccount(Account account) {
         cache.remove(account);
-        accountRepository.delete(account);
+        deleteRecord(accountRepository, account);
     }
 
     ////////////////////////////////////////////////////////////////////////////
@@ -179,45 +256,755 @@ public class MoneyDAO {
     ////////////////////////////////////////////////////////////////////////////
 
     public void insertTransaction(Transaction transaction) {
-        transactionRepository.insert(transaction);
+        // Year must be resident before insert, otherwise transaction would be loaded twice later
+        makeResident(transaction.year());
+        var deltas = writeTransaction(null, transaction);
         cache.add(transaction);
-        updateAccounts(transaction);
+        applyBalanceDeltas(deltas);
     }
 
     public void updateTransaction(Transaction transaction) {
-        var oldTransaction = cache.getTransaction(transaction.uuid()).orElseThrow();
-        transactionRepository.update(transaction);
+        var oldTransaction = getStoredTransaction(transaction.uuid());
+        // Both years must be resident, otherwise transaction would be loaded twice later
+        makeResident(oldTransaction.year(), transaction.year());
+        var deltas = writeTransaction(oldTransaction, transaction);
         cache.update(transaction);
-        updateAccounts(oldTransaction, transaction);
+        applyBalanceDeltas(deltas);
     }
 
     public void deleteTransaction(Transaction transaction) {
-        transactionRepository.delete(transaction);
+        var deltas = writeTransaction(transaction, null);
         cache.remove(transaction);
-        updateAccounts(transaction);
+        applyBalanceDeltas(deltas);
+    }
+
+    private Transaction getStoredTransaction(UUID uuid) {
+        return cache.getTransaction(uuid)
+            .or(() -> {
+                flushWrites();
+                return transactionRepository.get(uuid);
+            })
+            .orElseThrow();
     }
 
     /**
-     * This method recalculates total values for all involved accounts.
+     * Returns the whole transaction history. If only part of the history is resident in the cache transactions are
+     * read from the database.
      *
-     * @param transactions transactions that were added, updated or deleted.
-     */
-    private void updateAccounts(Transaction... transactions) {
-        Set.of(transactions).stream()
-            .map(t -> List.of(
-                cache().getAccount(t.accountDebitedUuid()).orElseThrow(),
-                cache().getAccount(t.accountCreditedUuid()).orElseThrow())
-            )
-            .flatMap(Collection::stream)
-            .collect(Collectors.toSet())
-            .forEach(account -> {
-                var total = cache().calculateBalance(account, false, t -> true);
-                var waiting = cache().calculateBalance(account, false, t -> !t.checked());
-                updateAccount(account.updateBalance(total, waiting));
+     * @return all transactions
+     */
+    public List<Transaction> getAllTransactions() {
+        if (transactionWindow == null) {
+            return List.copyOf(cache.getTransactions());
+        } else {
+            flushWrites();
+            return transactionRepository.getAll();
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Write-behind
+    ////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Enables write-behind mode with default latency and batch size.
+     *
+     * @param errorHandler receives write failures, called on the writer thread
+     */
+    public void enableWriteBehind(Consumer<Throwable> errorHandler) {
+        enableWriteBehind(WRITE_BEHIND_LATENCY, BATCH_SIZE, errorHandler);
+    }
+
+    /**
+     * Enables write-behind mode for the current data source. Cache is updated immediately while database changes
+     * are written by a background thread in batches, each batch in a single database transaction. Pending changes
+     * are written on {@link #flushWrites()}, when data source is changed and on JVM shutdown.
+     *
+     * @param maxLatency maximum time a change waits before it is written
+     * @param maxBatchSize maximum number of changes in a single database transaction
+     * @param errorHandler receives write failures, called on the writer thread
+     */
+    public void enableWriteBehind(Duration maxLatency, int maxBatchSize, Consumer<Throwable> errorHandler) {
+        closeWriteQueue();
+        writeQueue = new WriteBehindQueue(dataSource, maxLatency, maxBatchSize, errorHandler);
+    }
+
+    /**
+     * Writes all pending changes in write-behind mode. Does nothing otherwise.
+     *
+     * @throws RuntimeException if any pending change could not be written
+     */
+    public void flushWrites() {
+        if (writeQueue != null) {
+            writeQueue.flush();
+        }
+    }
+
+    private void closeWriteQueue() {
+        var queue = writeQueue;
+        writeQueue = null;
+        if (queue != null) {
+            queue.close();
+        }
+    }
+
+    private <T extends MoneyRecord> void insertRecord(Repository<T> repository, T record) {
+        if (writeQueue == null) {
+            repository.insert(record);
+        } else {
+            writeQueue.insert(repository, record);
+        }
+    }
+
+    private <T extends MoneyRecord> void updateRecord(Repository<T> repository, T record) {
+        if (writeQueue == null) {
+            repository.update(record);
+        } else {
+            writeQueue.update(repository, record);
+        }
+    }
+
+    private <T extends MoneyRecord> void deleteRecord(Repository<T> repository, T record) {
+        refreshDeletions.forEach(uuids -> uuids.add(record.uuid()));
+        if (writeQueue == null) {
+            repository.delete(record);
+        } else {
+            writeQueue.delete(repository, record);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Asynchronous API
+    ////////////////////////////////////////////////////////////////////////////
+
+    // Operations below must be called on the FX thread. Each operation returns a future completed on the FX thread
+    // after the cache is updated. Operations are executed in the order of submission, synchronous methods called
+    // meanwhile do not see changes of pending operations. Account balances are changed by deltas, thus balance
+    // changes made by synchronous methods meanwhile are kept.
+
+    public CompletableFuture<Icon> insertIconAsync(Icon icon) {
+        return insertAsync(iconRepository, icon, cache::add);
+    }
+
+    public CompletableFuture<Icon> updateIconAsync(Icon icon) {
+        return updateAsync(iconRepository, icon, cache::update);
+    }
+
+    public CompletableFuture<Category> insertCategoryAsync(Category category) {
+        return insertAsync(categoryRepository, category, cache::add);
+    }
+
+    public CompletableFuture<Category> updateCategoryAsync(Category category) {
+        return updateAsync(categoryRepository, category, cache::update);
+    }
+
+    public CompletableFuture<Currency> insertCurrencyAsync(Currency currency) {
+        return insertAsync(currencyRepository, currency, cache::add);
+    }
+
+    public CompletableFuture<Currency> updateCurrencyAsync(Currency currency) {
+        return updateAsync(currencyRepository, currency, cache::update);
+    }
+
+    public CompletableFuture<Contact> insertContactAsync(Contact contact) {
+        return insertAsync(contactRepository, contact, cache::add);
+    }
+
+    public CompletableFuture<Contact> updateContactAsync(Contact contact) {
+        return updateAsync(contactRepository, contact, cache::update);
+    }
+
+    public CompletableFuture<Account> insertAccountAsync(Account account) {
+        return insertAsync(accountRepository, account, cache::add);
+    }
+
+    public CompletableFuture<Account> updateAccountAsync(Account account) {
+        return updateAsync(accountRepository, account, cache::update);
+    }
+
+    public CompletableFuture<Account> deleteAccountAsync(Account account) {
+        return submit(() -> account, a -> {
+            deleteRecord(accountRepository, a);
+            return a;
+        }, cache::remove);
+    }
+
+    public CompletableFuture<Transaction> insertTransactionAsync(Transaction transaction) {
+        return insertTransactionAsync(transaction, CompletableFuture.completedFuture(null));
+    }
+
+    public CompletableFuture<Transaction> updateTransactionAsync(Transaction transaction) {
+        return updateTransactionAsync(transaction, CompletableFuture.completedFuture(null));
+    }
+
+    public CompletableFuture<Transaction> deleteTransactionAsync(Transaction transaction) {
+        return submit(() -> null, x -> writeTransaction(transaction, null), deltas -> {
+            cache.remove(transaction);
+            applyBalanceDeltas(deltas);
+        }).thenApply(deltas -> transaction);
+    }
+
+    public CompletableFuture<Transaction> insertTransactionAsync(Transaction.Builder builder) {
+        var contact = insertNewContactAsync(builder);
+        return insertTransactionAsync(builder
+            .modified(0)
+            .created(0)
+            .build(), contact);
+    }
+
+    public CompletableFuture<Transaction> updateTransactionAsync(Transaction.Builder builder) {
+        var contact = insertNewContactAsync(builder);
+        return updateTransactionAsync(builder
+            .modified(0)
+            .build(), contact);
+    }
+
+    // Transaction is not made resident, years that are not resident are registered by the cache merge
+    private CompletableFuture<Transaction> insertTransactionAsync(Transaction transaction,
+                                                                  CompletableFuture<?> dependency)
+    {
+        // Dependency is submitted earlier, thus it is complete when prepare step runs
+        return submit(dependency::join, x -> writeTransaction(null, transaction), deltas -> {
+            cache.mergeTransactions(List.of(transaction));
+            applyBalanceDeltas(deltas);
+        }).thenApply(deltas -> transaction);
+    }
+
+    private CompletableFuture<Transaction> updateTransactionAsync(Transaction transaction,
+                                                                  CompletableFuture<?> dependency)
+    {
+        return submit(() -> {
+            dependency.join();
+            return cache.getTransaction(transaction.uuid());
+        }, cached -> {
+            var oldTransaction = cached.or(() -> {
+                flushWrites();
+                return transactionRepository.get(transaction.uuid());
+            }).orElseThrow();
+            return writeTransaction(oldTransaction, transaction);
+        }, deltas -> {
+            cache.mergeTransactions(List.of(transaction));
+            applyBalanceDeltas(deltas);
+        }).thenApply(deltas -> transaction);
+    }
+
+    // Contact of the new name is inserted before the transaction that references it
+    private CompletableFuture<?> insertNewContactAsync(Transaction.Builder builder) {
+        var contact = newContact(builder);
+        return contact == null ? CompletableFuture.completedFuture(null) : insertContactAsync(contact);
+    }
+
+    /**
+     * Asynchronous variant of {@link #getAllTransactions()}.
+     *
+     * @return future completed with all transactions
+     */
+    public CompletableFuture<List<Transaction>> getAllTransactionsAsync() {
+        return submit(() -> transactionWindow == null ? List.copyOf(cache.getTransactions()) : null, cached -> {
+            if (cached != null) {
+                return cached;
+            }
+            flushWrites();
+            return transactionRepository.getAll();
+        }, transactions -> { });
+    }
+
+    /**
+     * Makes transactions within the date range resident. Transactions are read in background and added to the cache,
+     * thus views that follow the cache, e.g. {@link TransactionRange}, are updated when the future completes.
+     *
+     * @param from first date, inclusive, null means no lower bound
+     * @param to last date, inclusive, null means no upper bound
+     * @return future completed after transactions are added to the cache
+     */
+    public CompletableFuture<Void> loadTransactionsAsync(LocalDate from, LocalDate to) {
+        var fromDay = from == null ? Integer.MIN_VALUE : (int) from.toEpochDay();
+        var toDay = to == null ? Integer.MAX_VALUE : (int) to.toEpochDay();
+
+        return submit(() -> {
+            return transactionWindow == null ? List.<Integer>of() : transactionWindow.getMissingYears(fromDay, toDay);
+        }, years -> {
+            if (!years.isEmpty()) {
+                flushWrites();
+            }
+            var loaded = new HashMap<Integer, List<Transaction>>();
+            for (var year : years) {
+                loaded.put(year, transactionRepository.getByYear(year));
+            }
+            return loaded;
+        }, loaded -> {
+            if (transactionWindow != null && !loaded.isEmpty()) {
+                transactionWindow.addYears(loaded);
+            }
+        }).thenApply(loaded -> null);
+    }
+
+    private <T extends MoneyRecord> CompletableFuture<T> insertAsync(Repository<T> repository, T record,
+                                                                     Consumer<T> cacheUpdate)
+    {
+        return submit(() -> record, r -> {
+            insertRecord(repository, r);
+            return r;
+        }, cacheUpdate);
+    }
+
+    private <T extends MoneyRecord> CompletableFuture<T> updateAsync(Repository<T> repository, T record,
+                                                                     Consumer<T> cacheUpdate)
+    {
+        return submit(() -> record, r -> {
+            updateRecord(repository, r);
+            return r;
+        }, cacheUpdate);
+    }
+
+    /**
+     * Chains an operation after all previously submitted operations. Operation is executed in three steps: the
+     * cache is read on the FX thread, the database is accessed on the DAO executor, the cache is updated on the FX
+     * thread. The next operation starts when the cache update of the previous one is done, thus it observes all
+     * preceding changes. Failure of an operation does not cancel subsequent operations.
+     *
+     * @param prepare reads the cache, called on the FX thread
+     * @param write accesses the database, called on the DAO executor
+     * @param apply updates the cache, called on the FX thread
+     * @return future completed with the result of the database step
+     */
+    private synchronized <P, R> CompletableFuture<R> submit(Supplier<P> prepare, Function<P, R> write,
+                                                            Consumer<R> apply)
+    {
+        var future = asyncTail
+            .handle((result, throwable) -> null)
+            .thenApplyAsync(x -> prepare.get(), Platform::runLater)
+            .thenApplyAsync(write, ASYNC_EXECUTOR)
+            .thenApplyAsync(result -> {
+                apply.accept(result);
+                return result;
+            }, Platform::runLater);
+        asyncTail = future;
+        return future;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Incremental refresh
+    ////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Returns database server time of the latest {@link #preload(Consumer, boolean)} or refresh.
+     *
+     * @return time in milliseconds
+     */
+    public long getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    /**
+     * Picks up changes made by other clients since the last preload or refresh.
+     */
+    public void refresh() {
+        highWaterMark = refreshSince(highWaterMark);
+    }
+
+    /**
+     * Reads records modified or deleted after the specified time and applies them to the cache in a single FX
+     * event. Queries are extended back by a fixed overlap as modification time is assigned by clients. Records
+     * that are already cached are not replaced, cached records that are newer than the stored ones are kept.
+     * Records deleted locally after the queries started are not applied. Tombstones are kept for a limited time,
+     * clients that did not refresh for longer must preload.
+     *
+     * @param highWaterMark database server time of the previous refresh
+     * @return database server time taken before the queries
+     */
+    public long refreshSince(long highWaterMark) {
+        var deletions = ConcurrentHashMap.<UUID>newKeySet();
+        refreshDeletions.add(deletions);
+        try {
+            flushWrites();
+            var serverTime = getServerTime();
+            var since = highWaterMark - REFRESH_OVERLAP.toMillis();
+            var icons = iconRepository.getModifiedSince(since);
+            var categories = categoryRepository.getModifiedSince(since);
+            var currencies = currencyRepository.getModifiedSince(since);
+            var contacts = contactRepository.getModifiedSince(since);
+            var accounts = accountRepository.getModifiedSince(since);
+            var transactions = transactionRepository.getModifiedSince(since);
+            var deleted = DeletedRecords.getSince(dataSource, since);
+
+            Platform.runLater(() -> {
+                refreshDeletions.remove(deletions);
+                cache.removeAll(deleted.keySet());
+                cache.merge(
+                    notOlderThanCached(icons, cache::getIcon, deletions),
+                    notOlderThanCached(categories, cache::getCategory, deletions),
+                    notOlderThanCached(currencies, cache::getCurrency, deletions),
+                    notOlderThanCached(contacts, cache::getContact, deletions),
+                    notOlderThanCached(accounts, cache::getAccount, deletions),
+                    notOlderThanCached(transactions, cache::getTransaction, deletions)
+                );
             });
+            return serverTime;
+        } catch (RuntimeException ex) {
+            refreshDeletions.remove(deletions);
+            throw ex;
+        }
+    }
+
+    /**
+     * Starts periodic refresh. Refresh runs on a background thread, the previous refresh schedule is cancelled.
+     *
+     * @param interval refresh interval
+     * @param errorHandler receives refresh failures, called on the refresh thread
+     */
+    public synchronized void startRefresh(Duration interval, Consumer<Throwable> errorHandler) {
+        stopRefresh();
+        refreshExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r, "cache-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refreshExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (Throwable ex) {
+                errorHandler.accept(ex);
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops periodic refresh. Does nothing if refresh is not started.
+     */
+    public synchronized void stopRefresh() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+            refreshExecutor = null;
+        }
+    }
+
+    // Unlike client clocks database server clock is the same for all clients
+    private long getServerTime() {
+        try (var conn = dataSource.getConnection(); var st = conn.createStatement();
+             var rs = st.executeQuery(conn.isWrapperFor(JdbcConnection.class) ?
+                 "SELECT UNIX_TIMESTAMP(CURRENT_TIMESTAMP(3))" : "SELECT EXTRACT(EPOCH FROM CURRENT_TIMESTAMP)"))
+        {
+            rs.next();
+            return rs.getBigDecimal(1).movePointRight(3).longValue();
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    // Must be called on the FX thread, cache may be changed locally while refresh is in progress
+    private static <T extends MoneyRecord> List<T> notOlderThanCached(List<T> records,
+                                                                      Function<UUID, Optional<T>> cached,
+                                                                      Set<UUID> deleted)
+    {
+        return records.stream()
+            .filter(record -> !deleted.contains(record.uuid()))
+            .filter(record -> cached.apply(record.uuid())
+                .map(c -> record.modified() >= c.modified())
+                .orElse(true))
+            .toList();
+    }
+
+    // Pending changes must be written before any query, evicted years may have them too
+    private TransactionWindow.Loader transactionLoader() {
+        return new TransactionWindow.Loader() {
+            @Override
+            public List<Transaction> getByYear(int year) {
+                flushWrites();
+                return transactionRepository.getByYear(year);
+            }
+
+            @Override
+            public List<Transaction> getByAccount(UUID accountUuid) {
+                flushWrites();
+                return transactionRepository.getByAccount(accountUuid);
+            }
+
+            @Override
+            public long countByAccount(UUID accountUuid) {
+                flushWrites();
+                return transactionRepository.countByAccount(accountUuid);
+            }
+
+            @Override
+            public List<Transaction> getByParent(UUID parentUuid) {
+                flushWrites();
+                return transactionRepository.getByParent(parentUuid);
+            }
+        };
+    }
+
+    private void makeResident(Integer... years) {
+        if (transactionWindow != null) {
+            transactionWindow.loadYears(List.of(years));
+        }
+    }
+
+    /**
+     * Balance changes of accounts caused by transaction modification or reconciliation.
+     *
+     * @param deltas account uuid to balance change map, accounts with unchanged balance are not included
+     * @param modified modification time of changed accounts
+     */
+    private record BalanceDeltas(Map<UUID, DataCache.Balance> deltas, long modified) {
+    }
+
+    /**
+     * Writes transaction modification and balance changes it causes to the stored totals in a single database
+     * transaction, thus reconciliation never sees one without the other. In write-behind mode modification is queued
+     * and stored totals are written when changes are applied to the cache. Cache is not accessed.
+     *
+     * @param oldTransaction transaction before modification, null if transaction was inserted
+     * @param newTransaction transaction after modification, null if transaction was deleted
+     * @return balance changes
+     */
+    private BalanceDeltas writeTransaction(Transaction oldTransaction, Transaction newTransaction) {
+        var balanceDeltas = new BalanceDeltas(calculateBalanceDeltas(oldTransaction, newTransaction),
+            System.currentTimeMillis());
+
+        if (writeQueue != null) {
+            if (oldTransaction == null) {
+                insertRecord(transactionRepository, newTransaction);
+            } else if (newTransaction == null) {
+                deleteRecord(transactionRepository, oldTransaction);
+            } else {
+                updateRecord(transactionRepository, newTransaction);
+            }
+            return balanceDeltas;
+        }
+
+        if (newTransaction == null) {
+            refreshDeletions.forEach(uuids -> uuids.add(oldTransaction.uuid()));
+        }
+
+        balanceLock.readLock().lock();
+        try (var conn = dataSource.getConnection()) {
+            try {
+                conn.setAutoCommit(false);
+                if (oldTransaction == null) {
+                    transactionRepository.insert(conn, newTransaction);
+                } else if (newTransaction == null) {
+                    transactionRepository.delete(conn, 1, List.of(oldTransaction));
+                } else {
+                    transactionRepository.update(conn, newTransaction);
+                }
+                accountRepository.addToBalances(conn, balanceDeltas.deltas(), balanceDeltas.modified());
+                conn.commit();
+            } catch (Exception ex) {
+                conn.rollback();
+                throw ex;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            balanceLock.readLock().unlock();
+        }
+        return balanceDeltas;
+    }
+
+    private static Map<UUID, DataCache.Balance> calculateBalanceDeltas(Transaction oldTransaction,
+                                                                       Transaction newTransaction)
+    {
+        var totalDeltas = new LinkedHashMap<UUID, BigDecimal>();
+        var waitingDeltas = new HashMap<UUID, BigDecimal>();
+
+        if (oldTransaction != null) {
+            addBalanceDeltas(oldTransaction, true, totalDeltas, waitingDeltas);
+        }
+        if (newTransaction != null) {
+            addBalanceDeltas(newTransaction, false, totalDeltas, waitingDeltas);
+        }
+
+        var deltas = new LinkedHashMap<UUID, DataCache.Balance>();
+        totalDeltas.forEach((uuid, totalDelta) -> {
+            var waitingDelta = waitingDeltas.get(uuid);
+            if (totalDelta.signum() != 0 || waitingDelta.signum() != 0) {
+                deltas.put(uuid, new DataCache.Balance(totalDelta, waitingDelta));
+            }
+        });
+        return deltas;
+    }
+
+    /**
+     * Adds balance changes to the stored totals. In write-behind mode stored totals are written when changes are
+     * applied to the cache. Cache is not accessed.
+     *
+     * @param deltas account uuid to balance change map
+     * @return balance changes
+     */
+    private BalanceDeltas addToBalances(Map<UUID, DataCache.Balance> deltas) {
+        var balanceDeltas = new BalanceDeltas(deltas, System.currentTimeMillis());
+        if (writeQueue == null) {
+            accountRepository.addToBalances(deltas, balanceDeltas.modified());
+        }
+        return balanceDeltas;
+    }
+
+    /**
+     * Adds balance changes to the current cached accounts, thus changes made meanwhile by other operations are
+     * kept. Must be called on the FX thread.
+     *
+     * @param balanceDeltas balance changes
+     */
+    private void applyBalanceDeltas(BalanceDeltas balanceDeltas) {
+        balanceDeltas.deltas().forEach((uuid, delta) -> {
+            var account = cache.getAccount(uuid).orElseThrow();
+            var updated = new Account.Builder(account)
+                .total(account.total().add(delta.total()))
+                .totalWaiting(account.totalWaiting().add(delta.waiting()))
+                .modified(Math.max(account.modified(), balanceDeltas.modified()))
+                .build();
+            if (writeQueue != null) {
+                writeQueue.update(accountRepository, updated);
+            }
+            cache.update(updated);
+        });
+    }
+
+    private static void addBalanceDeltas(Transaction t, boolean negate,
+                                         Map<UUID, BigDecimal> totalDeltas,
+                                         Map<UUID, BigDecimal> waitingDeltas)
+    {
+        var accounts = Objects.equals(t.accountDebitedUuid(), t.accountCreditedUuid()) ?
+            List.of(t.accountDebitedUuid()) : List.of(t.accountDebitedUuid(), t.accountCreditedUuid());
+
+        for (var uuid : accounts) {
+            var delta = DataCache.calculateBalanceDelta(uuid, t);
+            if (negate) {
+                delta = delta.negate();
+            }
+            totalDeltas.merge(uuid, delta, BigDecimal::add);
+            waitingDeltas.merge(uuid, t.checked() ? BigDecimal.ZERO : delta, BigDecimal::add);
+        }
+    }
+
+    /**
+     * This method recalculates total values of the account from the whole transaction history. It should be used
+     * when stored values are suspected to be out of sync.
+     *
+     * @param account account
+     */
+    public void recalculateBalance(Account account) {
+        flushWrites();
+        var balance = DataCache.calculateBalances(cache.getTransactions(account), List.of(account), false)
+            .get(account.uuid());
+        updateAccount(account.updateBalance(balance.total(), balance.waiting()));
+    }
+
+    /**
+     * Calculates balances of all accounts from the whole transaction history. If only part of the history is
+     * resident in the cache balances are aggregated by the database.
+     *
+     * @return account uuid to balance map
+     */
+    public Map<UUID, DataCache.Balance> calculateBalances() {
+        if (transactionWindow == null) {
+            return cache.calculateBalances(true);
+        } else {
+            flushWrites();
+            var balances = transactionRepository.getBalances();
+            for (var account : cache.getAccounts()) {
+                balances.putIfAbsent(account.uuid(), DataCache.Balance.ZERO);
+            }
+            return balances;
+        }
+    }
+
+    /**
+     * Compares stored account totals with balances aggregated by the database and repairs accounts that drifted.
+     * Transaction history is not loaded. Drift is detected and added to the stored totals in background, then the
+     * same corrections are added to the current cached accounts on the FX thread. Corrections are deltas, thus
+     * concurrent balance changes are not lost.
+     *
+     * @return future completed with repaired accounts
+     */
+    public CompletableFuture<List<Account>> reconcileBalances() {
+        return reconcileBalances(uuid -> true);
+    }
+
+    /**
+     * Repairs balances of the specified accounts the same way as {@link #reconcileBalances()} does.
+     *
+     * @param accountUuids accounts to repair
+     * @return future completed with repaired accounts
+     */
+    public CompletableFuture<List<Account>> reconcileBalances(Collection<UUID> accountUuids) {
+        var accounts = Set.copyOf(accountUuids);
+        return reconcileBalances(accounts::contains);
+    }
+
+    private CompletableFuture<List<Account>> reconcileBalances(Predicate<UUID> filter) {
+        return CompletableFuture.supplyAsync(() -> {
+            flushWrites();
+            balanceLock.writeLock().lock();
+            try {
+                var corrections = transactionRepository.getBalanceCorrections();
+                corrections.keySet().removeIf(filter.negate());
+                return addToBalances(corrections);
+            } finally {
+                balanceLock.writeLock().unlock();
+            }
+        }, RECONCILIATION_EXECUTOR).thenApplyAsync(this::applyBalanceCorrections, Platform::runLater);
+    }
+
+    private List<Account> applyBalanceCorrections(BalanceDeltas corrections) {
+        var cached = new LinkedHashMap<UUID, DataCache.Balance>();
+        corrections.deltas().forEach((uuid, correction) -> cache.getAccount(uuid).ifPresent(account -> {
+            LOGGER.warning("Balance of account " + account.name() + " drifted by " + correction.total() + "/"
+                + correction.waiting());
+            cached.put(uuid, correction);
+        }));
+
+        applyBalanceDeltas(new BalanceDeltas(cached, corrections.modified()));
+        return cached.keySet().stream()
+            .map(cache::getAccount)
+            .flatMap(Optional::stream)
+            .toList();
+    }
+
+    /**
+     * This method stores account balances in a single database transaction. Accounts with unchanged balance
+     * are not updated.
+     *
+     * @param balances account uuid to balance map, usually calculated by {@link #calculateBalances()}
+     */
+    public void updateBalances(Map<UUID, DataCache.Balance> balances) {
+        var updated = new ArrayList<Account>();
+        balances.forEach((uuid, balance) -> cache.getAccount(uuid)
+            .filter(account -> account.total().compareTo(balance.total()) != 0
+                || account.totalWaiting().compareTo(balance.waiting()) != 0)
+            .ifPresent(account -> updated.add(account.updateBalance(balance.total(), balance.waiting()))));
+
+        if (updated.isEmpty()) {
+            return;
+        }
+
+        if (writeQueue != null) {
+            updated.forEach(account -> writeQueue.update(accountRepository, account));
+            updated.forEach(cache::update);
+            return;
+        }
+
+        try (var conn = dataSource.getConnection()) {
+            try {
+                conn.setAutoCommit(false);
+                accountRepository.update(conn, BATCH_SIZE, updated);
+                conn.commit();
+            } catch (Exception ex) {
+                conn.rollback();
+                throw ex;
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+
+        updated.forEach(cache::update);
     }
 
     public void createTables() {
+        flushWrites();
         try (var conn = dataSource.getConnection()) {
             new LiquibaseUtil(conn).dropAndUpdate();
         } catch (SQLException ex) {
@@ -225,52 +1012,195 @@ public class MoneyDAO {
         }
     }
 
-    public void preload() {
-        preload(IGNORE_PROGRESS);
+    /**
+     * Sets transaction residency used by the next {@link #preload(Consumer, boolean)}. When the number of resident
+     * years is positive only transactions of the current year and {@code residentYears - 1} previous years are
+     * loaded. Older transactions are loaded by date range queries of {@link DataCache} and evicted in least
+     * recently used order. Account balances are not affected as they are based on stored totals.
+     *
+     * @param residentYears number of resident years, 0 means the whole history is resident
+     * @param maxLoadedYears maximum number of older years kept in the cache
+     */
+    public void setTransactionResidency(int residentYears, int maxLoadedYears) {
+        if (residentYears < 0 || maxLoadedYears < 0) {
+            throw new IllegalArgumentException("Number of years must be >= 0");
+        }
+        this.residentYears = residentYears;
+        this.maxLoadedYears = maxLoadedYears;
+    }
+
+    public CompletableFuture<Void> preload() {
+        return preload(IGNORE_PROGRESS);
+    }
+
+    public CompletableFuture<Void> preload(Consumer<String> progress) {
+        return preload(progress, false);
     }
 
-    public void preload(Consumer<String> progress) {
+    /**
+     * Loads all data into the cache. In staged mode reference data is published first, then transactions are
+     * published newest month first in bounded chunks, one chunk per FX event, so that UI remains responsive
+     * while history is being added.
+     *
+     * @param progress progress consumer
+     * @param staged whether staged publication should be used
+     * @return future completed on the FX thread when all data is published to the cache
+     */
+    public CompletableFuture<Void> preload(Consumer<String> progress, boolean staged) {
+        flushWrites();
         progress.accept("Preloading data...\n");
+        var start = System.nanoTime();
+        var serverTime = getServerTime();
+
+        var executor = Executors.newFixedThreadPool(PRELOAD_THREADS, r -> {
+            var thread = new Thread(r, "preload");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            // Each repository is fetched on its own connection
+            var icons = loadAsync(iconRepository::getAll, executor);
+            var categories = loadAsync(categoryRepository::getAll, executor);
+            var contacts = loadAsync(contactRepository::getAll, executor);
+            var currencies = loadAsync(currencyRepository::getAll, executor);
+            var accounts = loadAsync(accountRepository::getAll, executor);
+
+            // Transactions are fetched by year
+            var transactionStart = System.nanoTime();
+            var years = transactionRepository.getYears();
+            var window = residentYears == 0 ? null : new TransactionWindow(cache, years, transactionLoader(),
+                LocalDate.now().getYear() - residentYears + 1, maxLoadedYears);
+            transactionWindow = window;
+
+            var transactionChunks = years.stream()
+                .filter(year -> window == null || year >= window.getFirstResidentYear())
+                .map(year -> loadAsync(() -> transactionRepository.getByYear(year), executor))
+                .toList();
+
+            var iconList = awaitPhase("icons", icons, progress);
+            var categoryList = awaitPhase("categories", categories, progress);
+            var contactList = awaitPhase("contacts", contacts, progress);
+            var currencyList = awaitPhase("currencies", currencies, progress);
+            var accountList = awaitPhase("accounts", accounts, progress);
+
+            var transactionList = new ArrayList<Transaction>();
+            for (var chunk : transactionChunks) {
+                transactionList.addAll(join(chunk).records());
+            }
+            progress.accept("    transactions... done, " + elapsedMillis(transactionStart) + " ms\n");
+
+            progress.accept("done, " + elapsedMillis(start) + " ms\n");
+
+            highWaterMark = serverTime;
+            DeletedRecords.purge(dataSource, System.currentTimeMillis() - TOMBSTONE_RETENTION.toMillis());
+
+            if (!staged) {
+                return CompletableFuture.supplyAsync(() -> {
+                    cache.setTransactionWindow(window);
+                    cache.getIcons().setAll(iconList);
+                    cache.getCategories().setAll(categoryList);
+                    cache.getContacts().setAll(contactList);
+                    cache.getCurrencies().setAll(currencyList);
+                    cache.getAccounts().setAll(accountList);
+                    cache.getTransactions().setAll(transactionList);
+                    return null;
+                }, Platform::runLater);
+            }
 
-        progress.accept("    icons... ");
-        var iconList = iconRepository.getAll();
-        progress.accept("done\n");
+            transactionList.sort(COMPARE_TRANSACTION_BY_MONTH.reversed());
+            var chunks = new ArrayList<List<Transaction>>();
+            for (int i = 0; i < transactionList.size(); i += PUBLICATION_CHUNK_SIZE) {
+                chunks.add(transactionList.subList(i, Math.min(i + PUBLICATION_CHUNK_SIZE, transactionList.size())));
+            }
 
-        progress.accept("    categories... ");
-        var categoryList = categoryRepository.getAll();
-        progress.accept("done\n");
+            var published = new CompletableFuture<Void>();
+            Platform.runLater(() -> {
+                try {
+                    cache.setTransactionWindow(window);
+                    cache.getTransactions().clear();
+                    cache.getIcons().setAll(iconList);
+                    cache.getCategories().setAll(categoryList);
+                    cache.getContacts().setAll(contactList);
+                    cache.getCurrencies().setAll(currencyList);
+                    cache.getAccounts().setAll(accountList);
+                    publishTransactions(chunks.iterator(), published);
+                } catch (Throwable ex) {
+                    published.completeExceptionally(ex);
+                }
+            });
+            return published;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 
-        progress.accept("    contacts... ");
-        var contactList = contactRepository.getAll();
-        progress.accept("done\n");
+    /**
+     * Adds the next chunk of transactions to the cache and schedules the rest as a separate FX event, thus
+     * pending input and pulse events are processed between chunks. Must be called on the FX thread.
+     *
+     * @param chunks transaction chunks
+     */
+    private static void publishTransactions(Iterator<List<Transaction>> chunks, CompletableFuture<Void> published) {
+        if (!chunks.hasNext()) {
+            published.complete(null);
+            return;
+        }
 
-        progress.accept("    currencies... ");
-        var currencyList = currencyRepository.getAll();
-        progress.accept("done\n");
+        try {
+            cache.getTransactions().addAll(chunks.next());
+        } catch (Throwable ex) {
+            published.completeExceptionally(ex);
+            return;
+        }
+        Platform.runLater(() -> publishTransactions(chunks, published));
+    }
 
-        progress.accept("    accounts... ");
-        var accountList = accountRepository.getAll();
-        progress.accept("done\n");
+    private record LoadResult<T>(List<T> records, long millis) {
+    }
 
-        progress.accept("    transactions... ");
-        var transactionList = transactionRepository.getAll();
-        progress.accept("done\n");
+    private static <T> CompletableFuture<LoadResult<T>> loadAsync(Supplier<List<T>> loader, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            var start = System.nanoTime();
+            var records = loader.get();
+            return new LoadResult<>(records, elapsedMillis(start));
+        }, executor);
+    }
 
-        progress.accept("done\n");
+    private static <T> List<T> awaitPhase(String name, CompletableFuture<LoadResult<T>> future,
+                                          Consumer<String> progress)
+    {
+        var result = join(future);
+        progress.accept("    " + name + "... done, " + result.millis() + " ms\n");
+        return result.records();
+    }
 
-        CompletableFuture.supplyAsync(() -> {
-            cache.getIcons().setAll(iconList);
-            cache.getCategories().setAll(categoryList);
-            cache.getContacts().setAll(contactList);
-            cache.getCurrencies().setAll(currencyList);
-            cache.getAccounts().setAll(accountList);
-            cache.getTransactions().setAll(transactionList);
-            return null;
-        }, Platform::runLater);
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            } else {
+                throw ex;
+            }
+        }
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
     }
 
     public void initialize(DataSource ds) {
+        closeWriteQueue();
+        stopRefresh();
+        if (dataSource instanceof ConnectionPool pool && pool != ds) {
+            pool.close();
+        }
         dataSource = ds;
+        transactionWindow = null;
+        highWaterMark = 0;
+        cache.setTransactionWindow(null);
 
         categoryRepository = new CategoryRepository(ds);
         accountRepository = new AccountRepository(ds);
@@ -283,110 +1213,303 @@ public class MoneyDAO {
     }
 
     public void importFullDump(Import imp, Consumer<String> progress) {
+        importFullDump(imp, false, progress);
+    }
+
+    /**
+     * Recreates tables and imports full dump. Records are validated before existing tables are dropped.
+     *
+     * @param imp imported records
+     * @param bulkLoad whether bulk load should be used if supported by the database
+     * @param progress progress consumer
+     */
+    public void importFullDump(Import imp, boolean bulkLoad, Consumer<String> progress) {
+        importFullDump(loader -> Stream.of(imp.getIcons(), imp.getCategories(), imp.getCurrencies(),
+                imp.getContacts(), imp.getAccounts(), imp.getTransactions())
+            .flatMap(List::stream)
+            .forEach(loader), bulkLoad, progress);
+    }
+
+    /**
+     * Recreates tables and imports full dump while it is being parsed. Records are inserted in bounded batches,
+     * the dump is never loaded into memory as a whole. The file is parsed twice: the first pass validates the dump,
+     * existing tables are dropped only if it succeeds.
+     * <p>
+     * In bulk load mode MySQL inserts are sent as multi-row statements with foreign key and unique checks disabled
+     * and the whole dump is committed at once. Other databases use regular batches.
+     *
+     * @param file XML dump
+     * @param bulkLoad whether bulk load should be used if supported by the database
+     * @param progress progress consumer
+     */
+    public void importFullDump(Path file, boolean bulkLoad, Consumer<String> progress) {
+        importFullDump(loader -> {
+            try (var input = Files.newInputStream(file)) {
+                Import.parse(input, loader);
+            } catch (IOException ex) {
+                throw new RuntimeException(ex);
+            }
+        }, bulkLoad, progress);
+    }
+
+    private void importFullDump(Consumer<FullDumpLoader> source, boolean bulkLoad, Consumer<String> progress) {
+        progress.accept("Validating data... ");
+        var validator = FullDumpLoader.validator(BATCH_SIZE);
+        source.accept(validator);
+        validator.finish();
+        progress.accept(" done\n");
+
         progress.accept("Recreating tables... ");
         createTables();
         progress.accept(" done\n");
 
-        try (var conn = dataSource.getConnection()) {
-            progress.accept("Importing data...\n");
-
-            progress.accept("    icons... ");
-            iconRepository.insert(conn, BATCH_SIZE, imp.getIcons());
-            progress.accept("done\n");
+        loadFullDump(dataSource, source, bulkLoad, progress);
+    }
 
-            progress.accept("    categories... ");
-            categoryRepository.insert(conn, BATCH_SIZE, imp.getCategories());
-            progress.accept("done\n");
+    /**
+     * Copies all records from one database to another through the full dump path, thus profiles of different types
+     * may be migrated in both directions. Tables of the target database are recreated, records are read from the
+     * source database rather than from the cache. Transactions are read one year at a time.
+     *
+     * @param source source data source
+     * @param target target data source
+     * @param progress progress consumer
+     * @throws IllegalArgumentException if target is the source or the open database
+     */
+    public static void copyDatabase(DataSource source, DataSource target, Consumer<String> progress) {
+        var targetId = getDatabaseId(target);
+        if (targetId.equals(getDatabaseId(source))) {
+            throw new IllegalArgumentException("Target database " + targetId + " is the source database");
+        }
+        var open = getDao().dataSource;
+        if (open != null && targetId.equals(getDatabaseId(open))) {
+            throw new IllegalArgumentException("Target database " + targetId + " is open");
+        }
 
-            progress.accept("    currencies... ");
-            currencyRepository.insert(conn, BATCH_SIZE, imp.getCurrencies());
-            progress.accept("done\n");
+        progress.accept("Recreating tables... ");
+        try (var conn = target.getConnection()) {
+            new LiquibaseUtil(conn).dropAndUpdate();
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+        progress.accept(" done\n");
 
-            progress.accept("    accounts... ");
-            accountRepository.insert(conn, BATCH_SIZE, imp.getAccounts());
-            progress.accept("done\n");
+        var transactions = new TransactionRepository(source);
+        loadFullDump(target, loader -> {
+            Stream.of(new IconRepository(source).getAll(), new CategoryRepository(source).getAll(),
+                    new CurrencyRepository(source).getAll(), new ContactRepository(source).getAll(),
+                    new AccountRepository(source).getAll())
+                .flatMap(List::stream)
+                .forEach(loader);
+            for (var year : transactions.getYears()) {
+                transactions.getByYear(year).forEach(loader);
+            }
+        }, true, progress);
+    }
 
-            progress.accept("    contacts... ");
-            contactRepository.insert(conn, BATCH_SIZE, imp.getContacts());
-            progress.accept("done\n");
+    /**
+     * Asynchronous variant of {@link #copyDatabase(DataSource, DataSource, Consumer)}. Copy is executed after
+     * pending asynchronous operations, pending changes are written first if the source is the open database. Must be
+     * called on the FX thread.
+     *
+     * @param source source data source
+     * @param target target data source
+     * @param progress progress consumer
+     * @return future completed on the FX thread after the copy
+     */
+    public CompletableFuture<Void> copyDatabaseAsync(DataSource source, DataSource target, Consumer<String> progress) {
+        return submit(() -> null, x -> {
+            if (dataSource != null && getDatabaseId(source).equals(getDatabaseId(dataSource))) {
+                flushWrites();
+            }
+            copyDatabase(source, target, progress);
+            return null;
+        }, x -> { });
+    }
 
-            progress.accept("    transactions... ");
-            transactionRepository.insert(conn, BATCH_SIZE,
-                imp.getTransactions().stream().filter(t -> t.parentUuid() == null).toList());
-            transactionRepository.insert(conn, BATCH_SIZE,
-                imp.getTransactions().stream().filter(t -> t.parentUuid() != null).toList());
-            progress.accept("done\n");
+    /*
+     * Identifies the database regardless of the way it is addressed: MySQL server reports its own host and port,
+     * embedded file name is made absolute.
+     */
+    private static String getDatabaseId(DataSource ds) {
+        try (var conn = ds.getConnection()) {
+            if (conn.isWrapperFor(JdbcConnection.class)) {
+                try (var st = conn.createStatement();
+                     var rs = st.executeQuery("SELECT @@hostname, @@port, DATABASE()"))
+                {
+                    rs.next();
+                    return "mysql://" + rs.getString(1) + ":" + rs.getInt(2) + "/" + rs.getString(3);
+                }
+            }
 
-            progress.accept("done\n");
+            var url = conn.getMetaData().getURL();
+            var options = url.indexOf(';');
+            if (options >= 0) {
+                url = url.substring(0, options);
+            }
+            if (!url.startsWith("jdbc:h2:") || url.startsWith("jdbc:h2:mem:") || url.startsWith("jdbc:h2:tcp:")) {
+                return url;
+            }
+            var file = url.substring("jdbc:h2:".length()).replaceFirst("^file:", "")
+                .replaceFirst("^~", Matcher.quoteReplacement(System.getProperty("user.home")));
+            return "h2:file:" + Path.of(file).toAbsolutePath().normalize();
         } catch (SQLException ex) {
             throw new RuntimeException(ex);
         }
     }
 
-    private void calculateActions(Map<UUID, ImportAction> idMap,
-                                  List<? extends MoneyRecord> existing,
-                                  List<? extends MoneyRecord> toImport)
+    private static void loadFullDump(DataSource ds, Consumer<FullDumpLoader> source, boolean bulkLoad,
+                                     Consumer<String> progress)
     {
-        for (MoneyRecord record : toImport) {
-            var found = DataCache.getRecord(existing, record.uuid());
-            if (found.isEmpty()) {
-                idMap.put(record.uuid(), ImportAction.INSERT);
-            } else {
-                if (record.modified() > found.get().modified()) {
-                    idMap.put(record.uuid(), ImportAction.UPDATE);
-                } else {
-                    idMap.put(record.uuid(), ImportAction.IGNORE);
-                }
+        try (var conn = ds.getConnection();
+             var session = bulkLoad ? BulkLoad.begin(conn).orElse(null) : null)
+        {
+            progress.accept(session == null ? "Importing data... " : "Importing data, bulk load... ");
+            var loader = new FullDumpLoader(conn, session == null ? BATCH_SIZE : BULK_LOAD_BATCH_SIZE,
+                new IconRepository(ds), new CategoryRepository(ds), new CurrencyRepository(ds),
+                new ContactRepository(ds), new AccountRepository(ds), new TransactionRepository(ds));
+            source.accept(loader);
+            loader.finish();
+            if (session != null) {
+                session.commit();
             }
+            progress.accept("done, " + loader.getCount() + " records\n");
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
         }
     }
 
-    private <T extends MoneyRecord> void importTable(Repository<T> repository,
-                                                     Connection conn,
-                                                     List<? extends T> toImport,
-                                                     Map<UUID, ImportAction> importActions)
+    private static Map<UUID, Long> getModified(Collection<? extends MoneyRecord> records) {
+        var result = new HashMap<UUID, Long>(records.size() * 2);
+        for (var record : records) {
+            result.put(record.uuid(), record.modified());
+        }
+        return result;
+    }
+
+    /**
+     * Splits imported records into inserts and updates. Records that are not newer than the existing ones are
+     * ignored.
+     *
+     * @param existing uuid to modification time map of existing records
+     * @param toImport imported records
+     * @return action to records map
+     */
+    private static <T extends MoneyRecord> Map<ImportAction, List<T>> calculateActions(Map<UUID, Long> existing,
+                                                                                   List<T> toImport)
     {
-        for (T item : toImport) {
-            switch (importActions.get(item.uuid())) {
-                case IGNORE:
-                    continue;
-
-                case INSERT:
-                    repository.insert(conn, item);
-                    break;
-
-                case UPDATE:
-                    repository.update(conn, item);
-                    break;
+        var actions = new EnumMap<ImportAction, List<T>>(ImportAction.class);
+        for (var action : ImportAction.values()) {
+            actions.put(action, new ArrayList<>());
+        }
+
+        for (var record : toImport) {
+            var modified = existing.get(record.uuid());
+            if (modified == null) {
+                actions.get(ImportAction.INSERT).add(record);
+            } else if (record.modified() > modified) {
+                actions.get(ImportAction.UPDATE).add(record);
+            } else {
+                actions.get(ImportAction.IGNORE).add(record);
             }
         }
+        return actions;
+    }
+
+    private static <T extends MoneyRecord> List<T> importTable(Repository<T> repository, Connection conn,
+                                                               Map<ImportAction, List<T>> actions)
+    {
+        var inserts = actions.get(ImportAction.INSERT);
+        var updates = actions.get(ImportAction.UPDATE);
+
+        repository.insert(conn, BATCH_SIZE, inserts);
+        repository.update(conn, BATCH_SIZE, updates);
+
+        var imported = new ArrayList<T>(inserts.size() + updates.size());
+        imported.addAll(inserts);
+        imported.addAll(updates);
+        return imported;
+    }
+
+    /**
+     * Modification times of existing records. Transactions are null if only part of the history is resident.
+     */
+    private record ExistingRecords(Map<UUID, Long> icons, Map<UUID, Long> categories, Map<UUID, Long> currencies,
+                                   Map<UUID, Long> contacts, Map<UUID, Long> accounts, Map<UUID, Long> transactions)
+    {
+    }
+
+    /**
+     * Records written by import.
+     */
+    private record ImportedRecords(List<Icon> icons, List<Category> categories, List<Currency> currencies,
+                                   List<Contact> contacts, List<Account> accounts, List<Transaction> transactions)
+    {
     }
 
+    /**
+     * Imports records that are new or newer than existing ones. Records are written in batches in a single
+     * database transaction, then merged into the cache on the FX thread, thus no reload is required.
+     *
+     * @param imp imported records
+     * @param progress progress consumer
+     */
     public void importRecords(Import imp, Consumer<String> progress) {
-        var iconActions = new HashMap<UUID, ImportAction>();
-        var categoryActions = new HashMap<UUID, ImportAction>();
-        var currencyActions = new HashMap<UUID, ImportAction>();
-        var contactActions = new HashMap<UUID, ImportAction>();
-        var accountActions = new HashMap<UUID, ImportAction>();
-        var transactionActions = new HashMap<UUID, ImportAction>();
-
-        calculateActions(iconActions, cache.getIcons(), imp.getIcons());
-        calculateActions(currencyActions, cache.getCurrencies(), imp.getCurrencies());
-        calculateActions(categoryActions, cache.getCategories(), imp.getCategories());
-        calculateActions(contactActions, cache.getContacts(), imp.getContacts());
-        calculateActions(accountActions, cache.getAccounts(), imp.getAccounts());
-        calculateActions(transactionActions, cache.getTransactions(), imp.getTransactions());
+        var imported = writeImport(imp, getExistingRecords(), progress);
+        Platform.runLater(() -> mergeImport(imported));
+    }
+
+    /**
+     * Asynchronous variant of {@link #importRecords(Import, Consumer)}. Existing records are compared on the FX
+     * thread, records are written in background and merged into the cache on the FX thread.
+     *
+     * @param imp imported records
+     * @param progress progress consumer, called on a background thread
+     * @return future completed after the cache is updated
+     */
+    public CompletableFuture<Void> importRecordsAsync(Import imp, Consumer<String> progress) {
+        return submit(this::getExistingRecords, existing -> writeImport(imp, existing, progress), this::mergeImport)
+            .thenApply(imported -> null);
+    }
+
+    private ExistingRecords getExistingRecords() {
+        return new ExistingRecords(getModified(cache.getIcons()), getModified(cache.getCategories()),
+            getModified(cache.getCurrencies()), getModified(cache.getContacts()), getModified(cache.getAccounts()),
+            transactionWindow == null ? getModified(cache.getTransactions()) : null);
+    }
+
+    private ImportedRecords writeImport(Import imp, ExistingRecords existing, Consumer<String> progress) {
+        flushWrites();
+
+        progress.accept("Comparing records... ");
+        var iconActions = calculateActions(existing.icons(), imp.getIcons());
+        var categoryActions = calculateActions(existing.categories(), imp.getCategories());
+        var currencyActions = calculateActions(existing.currencies(), imp.getCurrencies());
+        var contactActions = calculateActions(existing.contacts(), imp.getContacts());
+        var accountActions = calculateActions(existing.accounts(), imp.getAccounts());
+        var transactionActions = calculateActions(existing.transactions() != null ?
+            existing.transactions() : transactionRepository.getModified(), imp.getTransactions());
+
+        // Parent transactions must be inserted before their details
+        var transactionInserts = new ArrayList<Transaction>(transactionActions.get(ImportAction.INSERT));
+        transactionInserts.sort(Comparator.comparing(t -> t.parentUuid() != null));
+        transactionActions.put(ImportAction.INSERT, transactionInserts);
+        progress.accept("done\n");
+
+        ImportedRecords imported;
 
+        progress.accept("Importing data... ");
         try (var conn = dataSource.getConnection()) {
             try {
                 conn.setAutoCommit(false);
 
-                importTable(iconRepository, conn, imp.getIcons(), iconActions);
-                importTable(categoryRepository, conn, imp.getCategories(), categoryActions);
-                importTable(currencyRepository, conn, imp.getCurrencies(), currencyActions);
-                importTable(contactRepository, conn, imp.getContacts(), contactActions);
-                importTable(accountRepository, conn, imp.getAccounts(), accountActions);
-                importTable(transactionRepository, conn, imp.getTransactions(), transactionActions);
+                imported = new ImportedRecords(
+                    importTable(iconRepository, conn, iconActions),
+                    importTable(categoryRepository, conn, categoryActions),
+                    importTable(currencyRepository, conn, currencyActions),
+                    importTable(contactRepository, conn, contactActions),
+                    importTable(accountRepository, conn, accountActions),
+                    importTable(transactionRepository, conn, transactionActions));
 
                 conn.commit();
             } catch (Exception ex) {
@@ -396,6 +1519,28 @@ public class MoneyDAO {
         } catch (Exception ex) {
             throw new RuntimeException(ex);
         }
+        progress.accept("done, " + imported.transactions().size() + " transactions\n");
+        return imported;
+    }
+
+    private void mergeImport(ImportedRecords imported) {
+        cache.merge(imported.icons(), imported.categories(), imported.currencies(), imported.contacts(),
+            imported.accounts(), imported.transactions());
+    }
+
+    /**
+     * Recreates tables of an embedded database. Database file is created if it does not exist.
+     *
+     * @param dataSource data source
+     * @return exception or null if reset succeeded
+     */
+    public static Exception resetDatabase(DataSource dataSource) {
+        try (var conn = dataSource.getConnection()) {
+            new LiquibaseUtil(conn).dropAndUpdate();
+            return null;
+        } catch (SQLException | RuntimeException ex) {
+            return ex;
+        }
     }
 
     public static Exception resetDatabase(MysqlDataSource dataSource, String schema) {
@@ -415,10 +1560,9 @@ public class MoneyDAO {
     }
 
     public Transaction insertTransaction(Transaction.Builder builder) {
-        var newContactName = builder.getNewContactName();
-        if (newContactName != null && !newContactName.isEmpty()) {
-            var newContact = createContact(newContactName);
-            builder.contactUuid(newContact.uuid());
+        var contact = newContact(builder);
+        if (contact != null) {
+            insertContact(contact);
         }
 
         var transaction = builder
@@ -431,10 +1575,9 @@ public class MoneyDAO {
     }
 
     public Transaction updateTransaction(Transaction.Builder builder) {
-        var newContactName = builder.getNewContactName();
-        if (newContactName != null && !newContactName.isEmpty()) {
-            var newContact = createContact(newContactName);
-            builder.contactUuid(newContact.uuid());
+        var contact = newContact(builder);
+        if (contact != null) {
+            insertContact(contact);
         }
 
         var transaction = builder
@@ -445,13 +1588,23 @@ public class MoneyDAO {
         return transaction;
     }
 
-    private Contact createContact(String name) {
+    /**
+     * Creates contact record if builder contains new contact name and links the builder to it. Contact is not stored.
+     *
+     * @param builder transaction builder
+     * @return new contact or null
+     */
+    private static Contact newContact(Transaction.Builder builder) {
+        var newContactName = builder.getNewContactName();
+        if (newContactName == null || newContactName.isEmpty()) {
+            return null;
+        }
+
         var contact = new Contact.Builder()
             .uuid(UUID.randomUUID())
-            .name(name)
+            .name(newContactName)
             .build();
-
-        getDao().insertContact(contact);
+        builder.contactUuid(contact.uuid());
         return contact;
     }
 
@@ -0,0 +1,182 @@
+/*
+ Copyright (c) Petr Panteleyev. All rights reserved.
+ Licensed under the BSD license. See LICENSE file in the project root for full license information.
+ */
+package org.panteleyev.money.persistence;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import org.panteleyev.money.model.MoneyRecord;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Maintains uuid to record and uuid to list position maps for an observable list of records.
+ * Maps are updated by the list change listener, thus the list may also be modified directly.
+ * <p>
+ * Insertion or removal in the middle of the list shifts positions of all subsequent records. Such positions are
+ * not updated by the listener, they are marked as stale and recalculated on the first lookup that finds a stale
+ * position. Thus a change costs O(size of change), series of changes followed by a lookup cost a single pass
+ * over the tail of the list.
+ *
+ * @param <T> record type
+ */
+final class RecordIndex<T extends MoneyRecord> {
+    private final ObservableList<T> list;
+    private final Map<UUID, T> records = new HashMap<>();
+    private final Map<UUID, Integer> positions = new HashMap<>();
+    private final List<SecondaryIndex<?, T>> secondaryIndexes = new ArrayList<>();
+    // Positions of records at this index and after it may be outdated
+    private int staleFrom = Integer.MAX_VALUE;
+
+    RecordIndex(ObservableList<T> list) {
+        this.list = list;
+        reindex(0, list.size());
+        list.addListener(this::onListChanged);
+    }
+
+    <K> SecondaryIndex<K, T> addSecondaryIndex(SecondaryIndex<K, T> secondaryIndex) {
+        list.forEach(secondaryIndex::add);
+        secondaryIndexes.add(secondaryIndex);
+        return secondaryIndex;
+    }
+
+    Optional<T> get(UUID uuid) {
+        return Optional.ofNullable(records.get(uuid));
+    }
+
+    boolean contains(UUID uuid) {
+        return records.containsKey(uuid);
+    }
+
+    void update(T record) {
+        var position = position(record.uuid());
+        if (position != null) {
+            list.set(position, record);
+        }
+    }
+
+    /**
+     * Replaces records with the same uuid in place unless they are equal. New records are appended to the end of
+     * the list at once.
+     *
+     * @param merged records
+     */
+    void merge(Collection<T> merged) {
+        var added = new ArrayList<T>();
+        for (var record : merged) {
+            var position = position(record.uuid());
+            if (position == null) {
+                added.add(record);
+            } else if (!record.equals(list.get(position))) {
+                list.set(position, record);
+            }
+        }
+        list.addAll(added);
+    }
+
+    /**
+     * Removes records with the specified uuids from the list at once.
+     *
+     * @param uuids uuids
+     */
+    void removeAll(Set<UUID> uuids) {
+        if (!uuids.isEmpty()) {
+            list.removeIf(record -> uuids.contains(record.uuid()));
+        }
+    }
+
+    void remove(UUID uuid) {
+        var position = position(uuid);
+        if (position != null) {
+            list.remove(position.intValue());
+        }
+    }
+
+    private void onListChanged(ListChangeListener.Change<? extends T> change) {
+        if (list.isEmpty()) {
+            records.clear();
+            positions.clear();
+            secondaryIndexes.forEach(SecondaryIndex::clear);
+            staleFrom = Integer.MAX_VALUE;
+            return;
+        }
+
+        while (change.next()) {
+            if (change.wasPermutated()) {
+                reindex(change.getFrom(), change.getTo());
+                continue;
+            }
+
+            var replaced = new HashMap<UUID, T>();
+            for (var removed : change.getRemoved()) {
+                // Same uuid may be re-added by this change, keep the new record in that case
+                if (records.get(removed.uuid()) == removed) {
+                    records.remove(removed.uuid());
+                    positions.remove(removed.uuid());
+                }
+                replaced.put(removed.uuid(), removed);
+            }
+
+            for (var added : change.getAddedSubList()) {
+                records.put(added.uuid(), added);
+                var old = replaced.remove(added.uuid());
+                for (var secondaryIndex : secondaryIndexes) {
+                    if (old == null) {
+                        secondaryIndex.add(added);
+                    } else {
+                        secondaryIndex.replace(old, added);
+                    }
+                }
+            }
+
+            for (var removed : replaced.values()) {
+                for (var secondaryIndex : secondaryIndexes) {
+                    secondaryIndex.remove(removed);
+                }
+            }
+
+            // Positions of added records are valid at least until the next change
+            reindex(change.getFrom(), change.getTo());
+            if (change.getAddedSize() != change.getRemovedSize()) {
+                staleFrom = Math.min(staleFrom, change.getTo());
+            }
+        }
+    }
+
+    /**
+     * Returns position of the record with the specified uuid. Stale positions are recalculated if the stored one
+     * does not point to the record.
+     *
+     * @param uuid uuid
+     * @return position or null if record is not in the list
+     */
+    private Integer position(UUID uuid) {
+        var position = positions.get(uuid);
+        if (position == null || isAt(position, uuid)) {
+            return position;
+        }
+
+        reindex(staleFrom, list.size());
+        staleFrom = Integer.MAX_VALUE;
+        return positions.get(uuid);
+    }
+
+    private boolean isAt(int position, UUID uuid) {
+        return position < list.size() && list.get(position).uuid().equals(uuid);
+    }
+
+    private void reindex(int from, int to) {
+        for (int i = from; i < to; i++) {
+            var record = list.get(i);
+            records.put(record.uuid(), record);
+            positions.put(record.uuid(), i);
+        }
+    }
+}
@@ -7,6 +7,7 @@ package org.panteleyev.money.persistence;
 import org.panteleyev.money.model.MoneyRecord;
 import javax.sql.DataSource;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -14,11 +15,20 @@ import java.sql.SQLException;
 import java.sql.Types;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
 abstract class Repository<T extends MoneyRecord> {
+    private static final int UUID_BYTES = 16;
+
+    @FunctionalInterface
+    protected interface Parameters {
+        void set(PreparedStatement st) throws SQLException;
+    }
+
     private final String tableName;
     private final DataSource dataSource;
 
@@ -43,10 +53,20 @@ abstract class Repository<T extends MoneyRecord> {
 
     abstract protected String getUpdateSql();
 
+    /**
+     * Returns comma separated list of columns in the order expected by {@link #fromResultSet(ResultSet)}.
+     * Columns are read by index, thus column labels are not resolved for each row.
+     *
+     * @return list of columns
+     */
+    abstract protected String getColumns();
+
+    protected String getSelectSql() {
+        return "SELECT " + getColumns() + " FROM " + tableName;
+    }
+
     public List<T> getAll() {
-        try (var conn = dataSource.getConnection(); var st = conn.prepareStatement(
-            "SELECT * FROM " + tableName
-        )) {
+        try (var conn = dataSource.getConnection(); var st = conn.prepareStatement(getSelectSql())) {
             var result = new ArrayList<T>();
             try (var rs = st.executeQuery()) {
                 while (rs.next()) {
@@ -59,11 +79,64 @@ abstract class Repository<T extends MoneyRecord> {
         }
     }
 
+    /**
+     * Executes query and maps all rows.
+     *
+     * @param sql query
+     * @param parameters sets query parameters
+     * @return list of records
+     */
+    protected List<T> getList(String sql, Parameters parameters) {
+        try (var conn = getDataSource().getConnection(); var st = conn.prepareStatement(sql)) {
+            parameters.set(st);
+            var result = new ArrayList<T>();
+            try (var rs = st.executeQuery()) {
+                while (rs.next()) {
+                    result.add(fromResultSet(rs));
+                }
+            }
+            return result;
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Returns modification time of all records without mapping the whole rows.
+     *
+     * @return uuid to modification time map
+     */
+    public Map<UUID, Long> getModified() {
+        try (var conn = dataSource.getConnection();
+             var st = conn.prepareStatement("SELECT uuid, modified FROM " + tableName))
+        {
+            var result = new HashMap<UUID, Long>();
+            try (var rs = st.executeQuery()) {
+                while (rs.next()) {
+                    result.put(getUuid(rs, 1), rs.getLong(2));
+                }
+            }
+            return result;
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Returns records modified after the specified time.
+     *
+     * @param since time in milliseconds, exclusive
+     * @return list of records
+     */
+    public List<T> getModifiedSince(long since) {
+        return getList(getSelectSql() + " WHERE modified > ?", st -> st.setLong(1, since));
+    }
+
     public Optional<T> get(UUID uuid) {
         try (var conn = getDataSource().getConnection(); var st = conn.prepareStatement(
-            "SELECT * FROM " + tableName + " WHERE uuid = ?"
+            getSelectSql() + " WHERE uuid = ?"
         )) {
-            st.setString(1, uuid.toString());
+            setUuid(st, 1, uuid);
             try (var rs = st.executeQuery()) {
                 return rs.next() ? Optional.of(fromResultSet(rs)) : Optional.empty();
             }
@@ -139,29 +212,119 @@ abstract class Repository<T extends MoneyRecord> {
         }
     }
 
+    public void update(Connection conn, int batchSize, List<T> records) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be >= 1");
+        }
+
+        if (!records.isEmpty()) {
+            try (var st = conn.prepareStatement(getUpdateSql())) {
+                int count = 0;
+
+                for (T r : records) {
+                    toStatement(st, r, true);
+                    st.addBatch();
+
+                    if (++count % batchSize == 0) {
+                        st.executeBatch();
+                    }
+                }
+
+                st.executeBatch();
+            } catch (SQLException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+    }
+
+    /**
+     * Deletes record and writes its tombstone in a single database transaction.
+     *
+     * @param object record
+     * @return number of deleted rows
+     */
     public int delete(T object) {
-        try (var conn = dataSource.getConnection();
-             var st = conn.prepareStatement("DELETE FROM " + getTableName() + " WHERE uuid = ?")
-        ) {
-            st.setString(1, object.uuid().toString());
-            return st.executeUpdate();
+        try (var conn = dataSource.getConnection()) {
+            try {
+                conn.setAutoCommit(false);
+                int count;
+                try (var st = conn.prepareStatement("DELETE FROM " + getTableName() + " WHERE uuid = ?")) {
+                    setUuid(st, 1, object.uuid());
+                    count = st.executeUpdate();
+                }
+                DeletedRecords.insert(conn, 1, tableName, List.of(object.uuid()));
+                conn.commit();
+                return count;
+            } catch (Exception ex) {
+                conn.rollback();
+                throw ex;
+            } finally {
+                conn.setAutoCommit(true);
+            }
         } catch (SQLException ex) {
             throw new RuntimeException(ex);
         }
     }
 
-    static UUID getUuid(ResultSet set, String columnLabel) throws SQLException {
-        var obj = set.getObject(columnLabel);
-        return (obj instanceof String str && !str.isBlank()) ? UUID.fromString(str) : null;
+    /**
+     * Deletes records and writes their tombstones. Caller is responsible for the database transaction.
+     *
+     * @param conn connection
+     * @param batchSize JDBC batch size
+     * @param records records
+     */
+    public void delete(Connection conn, int batchSize, List<T> records) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be >= 1");
+        }
+
+        if (!records.isEmpty()) {
+            try (var st = conn.prepareStatement("DELETE FROM " + getTableName() + " WHERE uuid = ?")) {
+                int count = 0;
+
+                for (T r : records) {
+                    setUuid(st, 1, r.uuid());
+                    st.addBatch();
+
+                    if (++count % batchSize == 0) {
+                        st.executeBatch();
+                    }
+                }
+
+                st.executeBatch();
+                DeletedRecords.insert(conn, batchSize, tableName, records.stream().map(MoneyRecord::uuid).toList());
+            } catch (SQLException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+    }
+
+    /**
+     * Reads UUID stored as BINARY(16): most significant bits followed by least significant bits.
+     */
+    static UUID getUuid(ResultSet set, int columnIndex) throws SQLException {
+        var bytes = set.getBytes(columnIndex);
+        if (bytes == null) {
+            return null;
+        }
+        var buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
     }
 
     static void setUuid(PreparedStatement st, int index, UUID uuid) throws SQLException {
-        st.setString(index, uuid == null? null : uuid.toString());
+        if (uuid == null) {
+            st.setNull(index, Types.BINARY);
+        } else {
+            st.setBytes(index, ByteBuffer.allocate(UUID_BYTES)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array());
+        }
     }
 
-    static <E extends Enum<E>> E getEnum(ResultSet set, String columnLabel, Class<E> eClass) throws SQLException {
-        var obj = set.getObject(columnLabel);
-        return obj instanceof String str ? E.valueOf(eClass, str) : null;
+    static <E extends Enum<E>> E getEnum(ResultSet set, int columnIndex, Class<E> eClass) throws SQLException {
+        var str = set.getString(columnIndex);
+        return str == null ? null : E.valueOf(eClass, str);
     }
 
     static void setEnum(PreparedStatement st, int index, Enum<?> value) throws SQLException {
@@ -172,16 +335,17 @@ abstract class Repository<T extends MoneyRecord> {
         }
     }
 
-    static boolean getBoolean(ResultSet set, String columnLabel) throws SQLException {
-        return set.getInt(columnLabel) != 0;
+    static boolean getBoolean(ResultSet set, int columnIndex) throws SQLException {
+        return set.getInt(columnIndex) != 0;
     }
 
     static void setBoolean(PreparedStatement st, int index, boolean value) throws SQLException {
         st.setInt(index, value ? 1 : 0);
     }
 
-    static LocalDate getLocalDate(ResultSet set, String columnLabel) throws SQLException {
-        return set.getObject(columnLabel) == null ? null : LocalDate.ofEpochDay(set.getLong(columnLabel));
+    static LocalDate getLocalDate(ResultSet set, int columnIndex) throws SQLException {
+        var epochDay = set.getLong(columnIndex);
+        return set.wasNull() ? null : LocalDate.ofEpochDay(epochDay);
     }
 
     static void setLocalDate(PreparedStatement st, int index, LocalDate localDate) throws SQLException {
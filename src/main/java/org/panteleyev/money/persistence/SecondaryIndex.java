@@ -0,0 +1,138 @@
+/*
+ Copyright (c) Petr Panteleyev. All rights reserved.
+ Licensed under the BSD license. See LICENSE file in the project root for full license information.
+ */
+package org.panteleyev.money.persistence;
+
+import org.panteleyev.money.model.MoneyRecord;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Maps keys to records. Single record may be mapped by several keys, e.g. transaction is mapped by both
+ * debited and credited account. Sorted index additionally supports range queries.
+ * Instances are maintained by {@link RecordIndex}.
+ *
+ * @param <K> key type
+ * @param <T> record type
+ */
+final class SecondaryIndex<K, T extends MoneyRecord> {
+    private final Function<T, Collection<K>> keyExtractor;
+    private final Map<K, Map<UUID, T>> index;
+
+    SecondaryIndex(Function<T, Collection<K>> keyExtractor) {
+        this(keyExtractor, false);
+    }
+
+    SecondaryIndex(Function<T, Collection<K>> keyExtractor, boolean sorted) {
+        this.keyExtractor = keyExtractor;
+        this.index = sorted ? new TreeMap<>() : new HashMap<>();
+    }
+
+    /**
+     * Returns all keys. Keys of the sorted index are returned in ascending order.
+     *
+     * @return keys
+     */
+    List<K> keys() {
+        return List.copyOf(index.keySet());
+    }
+
+    List<T> get(K key) {
+        var records = index.get(key);
+        return records == null ? List.of() : List.copyOf(records.values());
+    }
+
+    int count(K key) {
+        var records = index.get(key);
+        return records == null ? 0 : records.size();
+    }
+
+    /**
+     * Returns records mapped by any of the specified keys. Each record is returned once.
+     *
+     * @param keys keys
+     * @return records
+     */
+    List<T> get(Collection<K> keys) {
+        var result = new LinkedHashMap<UUID, T>();
+        for (var key : keys) {
+            var records = index.get(key);
+            if (records != null) {
+                result.putAll(records);
+            }
+        }
+        return new ArrayList<>(result.values());
+    }
+
+    /**
+     * Returns records mapped by keys from the specified range. Index must be sorted.
+     *
+     * @param from lower key, inclusive
+     * @param to upper key, inclusive
+     * @return records
+     */
+    List<T> getRange(K from, K to) {
+        if (!(index instanceof NavigableMap<K, Map<UUID, T>> navigableMap)) {
+            throw new IllegalStateException("Range query requires sorted index");
+        }
+
+        var result = new ArrayList<T>();
+        for (var records : navigableMap.subMap(from, true, to, true).values()) {
+            result.addAll(records.values());
+        }
+        return result;
+    }
+
+    void add(T record) {
+        for (var key : keyExtractor.apply(record)) {
+            if (key != null) {
+                index.computeIfAbsent(key, k -> new LinkedHashMap<>()).put(record.uuid(), record);
+            }
+        }
+    }
+
+    void remove(T record) {
+        for (var key : keyExtractor.apply(record)) {
+            remove(key, record);
+        }
+    }
+
+    /**
+     * Replaces record with its updated version. Record keeps its position for keys that did not change.
+     *
+     * @param oldRecord record being replaced
+     * @param newRecord record with the same uuid
+     */
+    void replace(T oldRecord, T newRecord) {
+        var newKeys = keyExtractor.apply(newRecord);
+        for (var key : keyExtractor.apply(oldRecord)) {
+            if (!newKeys.contains(key)) {
+                remove(key, oldRecord);
+            }
+        }
+        add(newRecord);
+    }
+
+    private void remove(K key, T record) {
+        var records = index.get(key);
+        if (records != null) {
+            records.remove(record.uuid(), record);
+            if (records.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    void clear() {
+        index.clear();
+    }
+}
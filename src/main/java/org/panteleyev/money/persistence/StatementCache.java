@@ -0,0 +1,146 @@
+/*
+ Copyright (c) Petr Panteleyev. All rights reserved.
+ Licensed under the BSD license. See LICENSE file in the project root for full license information.
+ */
+package org.panteleyev.money.persistence;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prepared statements of a single physical connection keyed by SQL text. Statements returned by the cache are
+ * proxies, {@link PreparedStatement#close()} clears parameters and batch and keeps physical statement open
+ * for reuse. Least recently used statements are closed when cache is full.
+ */
+final class StatementCache {
+    private final Connection connection;
+    private final int maxSize;
+    private final Map<String, PreparedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<PreparedStatement> inUse = new HashSet<>();
+
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+
+    /**
+     * Creates statement cache.
+     *
+     * @param connection physical connection
+     * @param maxSize maximum number of cached statements
+     * @param hits counter of statements taken from the cache
+     * @param misses counter of prepared statements
+     */
+    StatementCache(Connection connection, int maxSize, AtomicLong hits, AtomicLong misses) {
+        this.connection = connection;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    PreparedStatement prepareStatement(Connection owner, String sql) throws SQLException {
+        var statement = statements.get(sql);
+        if (statement != null && (statement.isClosed() || inUse.contains(statement))) {
+            // Statement with the same text is still open, do not share it
+            if (statement.isClosed()) {
+                statements.remove(sql);
+            }
+            statement = null;
+        }
+
+        if (statement == null) {
+            misses.incrementAndGet();
+            statement = connection.prepareStatement(sql);
+            if (!statements.containsKey(sql)) {
+                statements.put(sql, statement);
+                evict();
+            }
+        } else {
+            hits.incrementAndGet();
+        }
+
+        inUse.add(statement);
+        return wrap(owner, sql, statement);
+    }
+
+    void close() {
+        for (var statement : statements.values()) {
+            try {
+                statement.close();
+            } catch (SQLException ex) {
+                // statement is unusable anyway
+            }
+        }
+        statements.clear();
+        inUse.clear();
+    }
+
+    private void evict() {
+        var iterator = statements.values().iterator();
+        while (statements.size() > maxSize && iterator.hasNext()) {
+            var statement = iterator.next();
+            if (!inUse.contains(statement)) {
+                iterator.remove();
+                try {
+                    statement.close();
+                } catch (SQLException ex) {
+                    // statement is unusable anyway
+                }
+            }
+        }
+    }
+
+    private PreparedStatement wrap(Connection owner, String sql, PreparedStatement statement) {
+        var closed = new boolean[]{false};
+
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+            new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "close" -> {
+                        if (!closed[0]) {
+                            closed[0] = true;
+                            inUse.remove(statement);
+                            if (statements.get(sql) == statement) {
+                                statement.clearParameters();
+                                statement.clearBatch();
+                            } else {
+                                statement.close();
+                            }
+                        }
+                        return null;
+                    }
+                    case "isClosed" -> {
+                        return closed[0] || statement.isClosed();
+                    }
+                    case "getConnection" -> {
+                        return owner;
+                    }
+                    case "equals" -> {
+                        return proxy == args[0];
+                    }
+                    case "hashCode" -> {
+                        return System.identityHashCode(proxy);
+                    }
+                    case "toString" -> {
+                        return "Cached " + statement;
+                    }
+                }
+
+                if (closed[0]) {
+                    throw new SQLException("Statement is closed");
+                }
+
+                try {
+                    return method.invoke(statement, args);
+                } catch (InvocationTargetException ex) {
+                    throw ex.getCause();
+                }
+            });
+    }
+}
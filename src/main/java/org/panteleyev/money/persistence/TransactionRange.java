@@ -0,0 +1,99 @@
+/*
+ Copyright (c) Petr Panteleyev. All rights reserved.
+ Licensed under the BSD license. See LICENSE file in the project root for full license information.
+ */
+package org.panteleyev.money.persistence;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.WeakListChangeListener;
+import org.panteleyev.money.model.Transaction;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+
+/**
+ * Observable list of cached transactions within the date range. List is populated from the calendar index
+ * of the cache and follows subsequent cache changes, thus views built on top of it process only transactions
+ * of the selected period. Years within the range are not evicted from the cache while the list is reachable.
+ */
+public class TransactionRange {
+    private final DataCache cache;
+    private final ObservableList<Transaction> transactions = FXCollections.observableArrayList();
+
+    private int fromDay = Integer.MIN_VALUE;
+    private int toDay = Integer.MAX_VALUE;
+
+    @SuppressWarnings("FieldCanBeLocal")
+    private final ListChangeListener<Transaction> cacheListener = this::onCacheChanged;
+
+    public TransactionRange(DataCache cache) {
+        this.cache = cache;
+        cache.getTransactions().addListener(new WeakListChangeListener<>(cacheListener));
+        cache.addTransactionRange(this);
+        transactions.setAll(cache.getTransactions());
+    }
+
+    public ObservableList<Transaction> getTransactions() {
+        return transactions;
+    }
+
+    /**
+     * Sets the date range. Only resident transactions are shown, transactions outside of the resident window are
+     * added when they are loaded into the cache, e.g. by {@link MoneyDAO#loadTransactionsAsync(LocalDate, LocalDate)}.
+     *
+     * @param from first date, inclusive, null means no lower bound
+     * @param to last date, inclusive, null means no upper bound
+     */
+    public void setRange(LocalDate from, LocalDate to) {
+        fromDay = from == null ? Integer.MIN_VALUE : (int) from.toEpochDay();
+        toDay = to == null ? Integer.MAX_VALUE : (int) to.toEpochDay();
+        transactions.setAll(cache.getResidentTransactions(fromDay, toDay));
+    }
+
+    private boolean inRange(Transaction transaction) {
+        var day = transaction.epochDay();
+        return day >= fromDay && day <= toDay;
+    }
+
+    boolean overlaps(int from, int to) {
+        return from <= toDay && to >= fromDay;
+    }
+
+    private void onCacheChanged(ListChangeListener.Change<? extends Transaction> change) {
+        var removed = new HashSet<Transaction>();
+        var added = new ArrayList<Transaction>();
+
+        while (change.next()) {
+            if (change.wasPermutated()) {
+                continue;
+            }
+
+            // Bulk replacement, e.g. preload or clear, is cheaper to query from the index. Cache must not be
+            // modified during change notification, thus only resident transactions are queried.
+            if (change.getAddedSize() == change.getList().size()) {
+                transactions.setAll(cache.getResidentTransactions(fromDay, toDay));
+                return;
+            }
+
+            for (var t : change.getRemoved()) {
+                if (inRange(t)) {
+                    removed.add(t);
+                }
+            }
+            for (var t : change.getAddedSubList()) {
+                if (inRange(t)) {
+                    added.add(t);
+                }
+            }
+        }
+
+        if (!removed.isEmpty()) {
+            transactions.removeAll(removed);
+        }
+        if (!added.isEmpty()) {
+            transactions.addAll(added);
+        }
+    }
+}
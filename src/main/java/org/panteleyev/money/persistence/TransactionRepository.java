@@ -8,9 +8,17 @@ import org.panteleyev.money.model.CategoryType;
 import org.panteleyev.money.model.Transaction;
 import org.panteleyev.money.model.TransactionType;
 import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 final class TransactionRepository extends Repository<Transaction> {
 
@@ -18,6 +26,17 @@ final class TransactionRepository extends Repository<Transaction> {
         super("transaction", dataSource);
     }
 
+    @Override
+    protected String getColumns() {
+        return """
+            uuid, amount, day, month, year,
+            type, comment, checked, acc_debited_uuid, acc_credited_uuid,
+            acc_debited_type, acc_credited_type, acc_debited_category_uuid, acc_credited_category_uuid, contact_uuid,
+            rate, rate_direction, invoice_number, parent_uuid, detailed,
+            statement_date, created, modified
+            """;
+    }
+
     @Override
     protected String getInsertSql() {
         return """
@@ -26,13 +45,13 @@ final class TransactionRepository extends Repository<Transaction> {
                 type, comment, checked, acc_debited_uuid, acc_credited_uuid,
                 acc_debited_type, acc_credited_type, acc_debited_category_uuid, acc_credited_category_uuid, contact_uuid,
                 rate, rate_direction, invoice_number, parent_uuid, detailed,
-                statement_date, created, modified
+                statement_date, created, modified, epoch_day
             ) VALUES (
                 ?, ?, ?, ?, ?,
                 ?, ?, ?, ?, ?,
                 ?, ?, ?, ?, ?,
                 ?, ?, ?, ?, ?,
-                ?, ?, ?
+                ?, ?, ?, ?
             )
             """;
     }
@@ -62,37 +81,39 @@ final class TransactionRepository extends Repository<Transaction> {
                 detailed = ?,
                 statement_date = ?,
                 created = ?,
-                modified = ?
+                modified = ?,
+                epoch_day = ?
             WHERE uuid = ?
             """;
     }
 
     @Override
     protected Transaction fromResultSet(ResultSet rs) throws SQLException {
+        var index = 1;
         return new Transaction(
-            getUuid(rs, "uuid"),
-            rs.getBigDecimal("amount"),
-            rs.getInt("day"),
-            rs.getInt("month"),
-            rs.getInt("year"),
-            getEnum(rs, "type", TransactionType.class),
-            rs.getString("comment"),
-            getBoolean(rs, "checked"),
-            getUuid(rs, "acc_debited_uuid"),
-            getUuid(rs, "acc_credited_uuid"),
-            getEnum(rs, "acc_debited_type", CategoryType.class),
-            getEnum(rs, "acc_credited_type", CategoryType.class),
-            getUuid(rs, "acc_debited_category_uuid"),
-            getUuid(rs, "acc_credited_category_uuid"),
-            getUuid(rs, "contact_uuid"),
-            rs.getBigDecimal("rate"),
-            rs.getInt("rate_direction"),
-            rs.getString("invoice_number"),
-            getUuid(rs, "parent_uuid"),
-            getBoolean(rs, "detailed"),
-            getLocalDate(rs, "statement_date"),
-            rs.getLong("created"),
-            rs.getLong("modified")
+            getUuid(rs, index++),
+            rs.getBigDecimal(index++),
+            rs.getInt(index++),
+            rs.getInt(index++),
+            rs.getInt(index++),
+            getEnum(rs, index++, TransactionType.class),
+            rs.getString(index++),
+            getBoolean(rs, index++),
+            getUuid(rs, index++),
+            getUuid(rs, index++),
+            getEnum(rs, index++, CategoryType.class),
+            getEnum(rs, index++, CategoryType.class),
+            getUuid(rs, index++),
+            getUuid(rs, index++),
+            getUuid(rs, index++),
+            rs.getBigDecimal(index++),
+            rs.getInt(index++),
+            rs.getString(index++),
+            getUuid(rs, index++),
+            getBoolean(rs, index++),
+            getLocalDate(rs, index++),
+            rs.getLong(index++),
+            rs.getLong(index++)
         );
     }
 
@@ -124,8 +145,209 @@ final class TransactionRepository extends Repository<Transaction> {
         setLocalDate(st, index++, transaction.statementDate());
         st.setLong(index++, transaction.created());
         st.setLong(index++, transaction.modified());
+        st.setInt(index++, transaction.epochDay());
         if (update) {
             setUuid(st, index, transaction.uuid());
         }
     }
+
+    /**
+     * Returns distinct transaction years in ascending order.
+     *
+     * @return years
+     */
+    public List<Integer> getYears() {
+        try (var conn = getDataSource().getConnection(); var st = conn.prepareStatement(
+            "SELECT DISTINCT year FROM transaction ORDER BY year"
+        )) {
+            var result = new ArrayList<Integer>();
+            try (var rs = st.executeQuery()) {
+                while (rs.next()) {
+                    result.add(rs.getInt(1));
+                }
+            }
+            return result;
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Returns transactions of the year. Query uses epoch day index.
+     *
+     * @param year year
+     * @return transactions
+     */
+    public List<Transaction> getByYear(int year) {
+        return getByEpochDay(Transaction.toEpochDay(year, 1, 1), Transaction.toEpochDay(year, 12, 31));
+    }
+
+    /**
+     * Returns transactions where account is either debited or credited.
+     *
+     * @param accountUuid account uuid
+     * @return transactions
+     */
+    public List<Transaction> getByAccount(UUID accountUuid) {
+        return getList(getByAccountSql(), st -> {
+            setUuid(st, 1, accountUuid);
+            setUuid(st, 2, accountUuid);
+            setUuid(st, 3, accountUuid);
+        });
+    }
+
+    /**
+     * Returns number of transactions where account is either debited or credited.
+     *
+     * @param accountUuid account uuid
+     * @return number of transactions
+     */
+    public long countByAccount(UUID accountUuid) {
+        try (var conn = getDataSource().getConnection(); var st = conn.prepareStatement(getCountByAccountSql())) {
+            setUuid(st, 1, accountUuid);
+            setUuid(st, 2, accountUuid);
+            setUuid(st, 3, accountUuid);
+            try (var rs = st.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Returns child transactions of the detailed transaction.
+     *
+     * @param parentUuid parent transaction uuid
+     * @return child transactions
+     */
+    public List<Transaction> getByParent(UUID parentUuid) {
+        return getList(getByParentSql(), st -> setUuid(st, 1, parentUuid));
+    }
+
+    /**
+     * Returns transactions within date range, both dates inclusive.
+     *
+     * @param from first date
+     * @param to last date
+     * @return transactions
+     */
+    public List<Transaction> getByDateRange(LocalDate from, LocalDate to) {
+        return getByEpochDay((int) from.toEpochDay(), (int) to.toEpochDay());
+    }
+
+    /**
+     * Returns transactions within range of epoch days, both days inclusive.
+     *
+     * @param fromDay first epoch day
+     * @param toDay last epoch day
+     * @return transactions
+     * @see Transaction#epochDay()
+     */
+    public List<Transaction> getByEpochDay(int fromDay, int toDay) {
+        return getList(getByDateRangeSql(), st -> {
+            st.setInt(1, fromDay);
+            st.setInt(2, toDay);
+        });
+    }
+
+    /**
+     * Calculates balances of all accounts on the database side, exactly as
+     * {@link DataCache#calculateBalances(List, java.util.Collection, boolean)} does. Accounts without transactions
+     * are not included. Initial balance is not included.
+     *
+     * @return account uuid to balance map
+     */
+    public Map<UUID, DataCache.Balance> getBalances() {
+        try (var conn = getDataSource().getConnection(); var st = conn.prepareStatement(getBalancesSql())) {
+            var result = new HashMap<UUID, DataCache.Balance>();
+            try (var rs = st.executeQuery()) {
+                while (rs.next()) {
+                    result.put(getUuid(rs, 1), new DataCache.Balance(getAmount(rs, 2), getAmount(rs, 3)));
+                }
+            }
+            return result;
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Compares stored account totals with balances calculated by {@link #getBalances()}. Both are read by a single
+     * statement, though not every database reads all tables of a statement from the same snapshot, thus callers must
+     * not write transactions concurrently.
+     *
+     * @return account uuid to difference between calculated and stored balance, only for accounts that drifted
+     */
+    public Map<UUID, DataCache.Balance> getBalanceCorrections() {
+        try (var conn = getDataSource().getConnection(); var st = conn.prepareStatement(getBalanceCorrectionsSql())) {
+            var result = new HashMap<UUID, DataCache.Balance>();
+            try (var rs = st.executeQuery()) {
+                while (rs.next()) {
+                    var total = getAmount(rs, 4).subtract(getAmount(rs, 2));
+                    var waiting = getAmount(rs, 5).subtract(getAmount(rs, 3));
+                    if (total.signum() != 0 || waiting.signum() != 0) {
+                        result.put(getUuid(rs, 1), new DataCache.Balance(total, waiting));
+                    }
+                }
+            }
+            return result;
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private static BigDecimal getAmount(ResultSet rs, int index) throws SQLException {
+        var amount = rs.getBigDecimal(index);
+        return amount == null ? BigDecimal.ZERO : amount.setScale(MoneyDAO.FIELD_SCALE, RoundingMode.HALF_UP);
+    }
+
+    /*
+     * Union instead of OR lets each part use its own account index.
+     */
+    protected String getByAccountSql() {
+        return getSelectSql() + " WHERE acc_debited_uuid = ?"
+            + " UNION ALL "
+            + getSelectSql() + " WHERE acc_credited_uuid = ? AND acc_debited_uuid <> ?";
+    }
+
+    protected String getCountByAccountSql() {
+        return "SELECT (SELECT COUNT(*) FROM transaction WHERE acc_debited_uuid = ?)"
+            + " + (SELECT COUNT(*) FROM transaction WHERE acc_credited_uuid = ? AND acc_debited_uuid <> ?)";
+    }
+
+    /*
+     * Credited amount is converted with the transaction rate and rounded to the column scale like it is rounded when
+     * stored into account total, debited amount is taken as is. Transaction between the same account is counted
+     * once as credit.
+     */
+    protected String getBalancesSql() {
+        var credit = "CASE"
+            + " WHEN rate = 0 OR rate = 1 THEN amount"
+            + " WHEN rate_direction = 0 THEN ROUND(amount / rate, " + MoneyDAO.FIELD_SCALE + ")"
+            + " ELSE ROUND(amount * rate, " + MoneyDAO.FIELD_SCALE + ")"
+            + " END";
+
+        return "SELECT account_uuid, SUM(total) AS total, SUM(waiting) AS waiting FROM ("
+            + " SELECT acc_credited_uuid AS account_uuid, " + credit + " AS total,"
+            + " CASE WHEN checked = 0 THEN " + credit + " ELSE 0 END AS waiting"
+            + " FROM transaction WHERE parent_uuid IS NULL"
+            + " UNION ALL"
+            + " SELECT acc_debited_uuid, -amount, CASE WHEN checked = 0 THEN -amount ELSE 0 END"
+            + " FROM transaction WHERE parent_uuid IS NULL AND acc_debited_uuid <> acc_credited_uuid"
+            + ") deltas GROUP BY account_uuid";
+    }
+
+    protected String getBalanceCorrectionsSql() {
+        return "SELECT a.uuid, a.total, a.total_waiting, b.total, b.waiting FROM account a"
+            + " LEFT JOIN (" + getBalancesSql() + ") b ON b.account_uuid = a.uuid";
+    }
+
+    protected String getByParentSql() {
+        return getSelectSql() + " WHERE parent_uuid = ?";
+    }
+
+    protected String getByDateRangeSql() {
+        return getSelectSql() + " WHERE epoch_day BETWEEN ? AND ?";
+    }
 }
@@ -0,0 +1,237 @@
+/*
+ Copyright (c) Petr Panteleyev. All rights reserved.
+ Licensed under the BSD license. See LICENSE file in the project root for full license information.
+ */
+package org.panteleyev.money.persistence;
+
+import org.panteleyev.money.model.Transaction;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Residency policy of transactions in {@link DataCache}. Transactions starting from the first resident year are
+ * loaded at startup and stay in the cache. Older years are loaded on demand when a date range query asks for them.
+ * At most {@code maxLoadedYears} older years are kept, least recently used years are evicted first. Years shown by
+ * live {@link TransactionRange} views are never evicted.
+ * Queries that need the whole history regardless of date are answered by the loader without making years resident.
+ * Methods modify the observable transaction list, thus they must be called on the FX thread.
+ */
+final class TransactionWindow {
+    /**
+     * Reads transactions from the database.
+     */
+    interface Loader {
+        List<Transaction> getByYear(int year);
+
+        List<Transaction> getByAccount(UUID accountUuid);
+
+        long countByAccount(UUID accountUuid);
+
+        List<Transaction> getByParent(UUID parentUuid);
+    }
+
+    private final DataCache cache;
+    private final Loader loader;
+    private final int firstResidentYear;
+    private final int maxLoadedYears;
+
+    private final NavigableSet<Integer> years;
+    // Loaded years older than the first resident year in access order
+    private final Map<Integer, Boolean> loadedYears = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Creates transaction window.
+     *
+     * @param cache data cache
+     * @param years all years that have transactions in the database
+     * @param loader loads transactions from the database
+     * @param firstResidentYear first year of always resident transactions
+     * @param maxLoadedYears maximum number of older years kept in the cache
+     */
+    TransactionWindow(DataCache cache, Collection<Integer> years, Loader loader,
+                      int firstResidentYear, int maxLoadedYears)
+    {
+        if (maxLoadedYears < 0) {
+            throw new IllegalArgumentException("Number of loaded years must be >= 0");
+        }
+
+        this.cache = cache;
+        this.years = new TreeSet<>(years);
+        this.loader = loader;
+        this.firstResidentYear = firstResidentYear;
+        this.maxLoadedYears = maxLoadedYears;
+    }
+
+    int getFirstResidentYear() {
+        return firstResidentYear;
+    }
+
+    /**
+     * Returns all years that have transactions, both resident and not.
+     *
+     * @return years in ascending order
+     */
+    List<Integer> getYears() {
+        return List.copyOf(years);
+    }
+
+    /**
+     * Registers year of a transaction added to the database but not loaded into the cache.
+     *
+     * @param year year
+     */
+    void addYear(int year) {
+        years.add(year);
+    }
+
+    boolean isResident(int year) {
+        return year >= firstResidentYear || loadedYears.containsKey(year);
+    }
+
+    /**
+     * Makes transactions of the epoch day range resident.
+     *
+     * @param fromDay first epoch day, inclusive
+     * @param toDay last epoch day, inclusive
+     */
+    void load(int fromDay, int toDay) {
+        loadYears(rangeOfDays(fromDay, toDay));
+    }
+
+    /**
+     * Makes transactions of the specified years resident. Years loaded by this call are not evicted even if their
+     * number exceeds the limit.
+     *
+     * @param requested years
+     */
+    void loadYears(Collection<Integer> requested) {
+        var loaded = new HashMap<Integer, List<Transaction>>();
+        for (var year : requested) {
+            // get() moves year to the end of the access order
+            if (year < firstResidentYear && loadedYears.get(year) == null) {
+                loaded.put(year, loader.getByYear(year));
+            }
+        }
+        addYears(requested, loaded);
+    }
+
+    /**
+     * Returns years of the epoch day range that are not resident.
+     *
+     * @param fromDay first epoch day, inclusive
+     * @param toDay last epoch day, inclusive
+     * @return years that must be loaded
+     */
+    List<Integer> getMissingYears(int fromDay, int toDay) {
+        return rangeOfDays(fromDay, toDay).stream()
+            .filter(year -> !loadedYears.containsKey(year))
+            .toList();
+    }
+
+    /**
+     * Makes transactions of the specified years resident. Transactions are read by the caller, years that became
+     * resident meanwhile are skipped as their transactions may have changed since they were read. Years added by
+     * this call are not evicted even if their number exceeds the limit.
+     *
+     * @param loaded year to transactions map
+     */
+    void addYears(Map<Integer, List<Transaction>> loaded) {
+        addYears(loaded.keySet(), loaded);
+    }
+
+    private void addYears(Collection<Integer> requested, Map<Integer, List<Transaction>> loaded) {
+        var keep = new HashSet<Integer>();
+        var added = new ArrayList<Transaction>();
+
+        for (var year : requested) {
+            if (year >= firstResidentYear) {
+                continue;
+            }
+            keep.add(year);
+            if (!loadedYears.containsKey(year) && loaded.containsKey(year)) {
+                added.addAll(loaded.get(year));
+                loadedYears.put(year, Boolean.TRUE);
+                years.add(year);
+            }
+        }
+
+        evict(keep);
+        if (!added.isEmpty()) {
+            cache.getTransactions().addAll(added);
+        }
+    }
+
+    /**
+     * Returns all transactions of the account including years that are not resident.
+     *
+     * @param accountUuid account uuid
+     * @return transactions
+     */
+    List<Transaction> getByAccount(UUID accountUuid) {
+        return loader.getByAccount(accountUuid);
+    }
+
+    /**
+     * Returns number of transactions of the account including years that are not resident.
+     *
+     * @param accountUuid account uuid
+     * @return number of transactions
+     */
+    long countByAccount(UUID accountUuid) {
+        return loader.countByAccount(accountUuid);
+    }
+
+    /**
+     * Returns all details of the parent transaction including years that are not resident.
+     *
+     * @param parentUuid parent transaction uuid
+     * @return transactions
+     */
+    List<Transaction> getByParent(UUID parentUuid) {
+        return loader.getByParent(parentUuid);
+    }
+
+    // Older years of the epoch day range
+    private List<Integer> rangeOfDays(int fromDay, int toDay) {
+        if (fromDay > toDay) {
+            return List.of();
+        }
+
+        var fromYear = fromDay == Integer.MIN_VALUE ? Integer.MIN_VALUE : LocalDate.ofEpochDay(fromDay).getYear();
+        var toYear = toDay == Integer.MAX_VALUE ? Integer.MAX_VALUE : LocalDate.ofEpochDay(toDay).getYear();
+        return rangeOfYears(fromYear, toYear);
+    }
+
+    private List<Integer> rangeOfYears(int fromYear, int toYear) {
+        var upper = Math.min(toYear, firstResidentYear - 1);
+        return fromYear > upper ? List.of() : List.copyOf(years.subSet(fromYear, true, upper, true));
+    }
+
+    private void evict(Set<Integer> keep) {
+        var evicted = new HashSet<Transaction>();
+
+        var iterator = loadedYears.keySet().iterator();
+        while (loadedYears.size() > maxLoadedYears && iterator.hasNext()) {
+            var year = iterator.next();
+            if (!keep.contains(year) && !cache.isShownByRange(year)) {
+                iterator.remove();
+                evicted.addAll(cache.getResidentTransactions(
+                    Transaction.toEpochDay(year, 1, 1), Transaction.toEpochDay(year, 12, 31)));
+            }
+        }
+
+        if (!evicted.isEmpty()) {
+            cache.getTransactions().removeAll(evicted);
+        }
+    }
+}
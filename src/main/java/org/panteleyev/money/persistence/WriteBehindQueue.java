@@ -0,0 +1,357 @@
+/*
+ Copyright (c) Petr Panteleyev. All rights reserved.
+ Licensed under the BSD license. See LICENSE file in the project root for full license information.
+ */
+package org.panteleyev.money.persistence;
+
+import org.panteleyev.money.model.MoneyRecord;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Queue of pending database mutations written by a background thread. Mutations are grouped into batches, each
+ * batch is written in a single database transaction. A batch is written when the oldest pending mutation waited
+ * for the maximum latency, when the batch is full or when flush is requested.
+ * <p>
+ * Updates of a record that is still pending replace the pending record, thus repeated modifications of the same
+ * account are written once. Update is merged only if no insert was queued after the pending record, otherwise the
+ * merged update could be written before a record it references.
+ * <p>
+ * Failed batches are rolled back and returned to the head of the queue, only the first failure of a batch is
+ * reported to the error handler. They are retried after the maximum latency or on {@link #flush()}, which throws if
+ * the retry fails too. After {@value #MAX_ATTEMPTS} failed attempts mutations of the batch are written one by one,
+ * mutations that still fail are discarded and reported once, thus a broken mutation never blocks later ones.
+ * Mutations that still fail when the queue is closed are discarded.
+ */
+final class WriteBehindQueue implements AutoCloseable {
+    private static final int JDBC_BATCH_SIZE = 1000;
+    private static final int MAX_ATTEMPTS = 3;
+
+    private enum Operation {
+        INSERT,
+        UPDATE,
+        DELETE
+    }
+
+    private static final class Mutation {
+        private final Operation operation;
+        private final Repository<?> repository;
+        private MoneyRecord record;
+        private long sequence;
+        private int failedAttempts;
+
+        Mutation(Operation operation, Repository<?> repository, MoneyRecord record) {
+            this.operation = operation;
+            this.repository = repository;
+            this.record = record;
+        }
+    }
+
+    private final DataSource dataSource;
+    private final long maxLatencyNanos;
+    private final int maxBatchSize;
+    private final Consumer<Throwable> errorHandler;
+
+    private final Object lock = new Object();
+    private final List<Mutation> pending = new ArrayList<>();
+    // Pending inserts and updates that may absorb subsequent updates of the same record
+    private final Map<UUID, Mutation> mergeable = new HashMap<>();
+    private long nextSequence;
+    private long lastInsertSequence = -1;
+    private long firstPendingNanos;
+    // Number of mutations being written
+    private int inFlight;
+    private int flushRequests;
+    private boolean closed;
+    // Set after failure, failed mutations are not retried before the maximum latency or flush
+    private boolean retryDelayed;
+    private int failureCount;
+    private Throwable failure;
+
+    private final Thread writer;
+
+    /**
+     * Creates queue and starts writer thread.
+     *
+     * @param dataSource data source
+     * @param maxLatency maximum time a mutation waits before it is written
+     * @param maxBatchSize maximum number of mutations in a single database transaction
+     * @param errorHandler receives write failures, called on the writer thread
+     */
+    WriteBehindQueue(DataSource dataSource, Duration maxLatency, int maxBatchSize, Consumer<Throwable> errorHandler) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be >= 1");
+        }
+
+        this.dataSource = dataSource;
+        this.maxLatencyNanos = maxLatency.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.errorHandler = errorHandler;
+
+        writer = new Thread(this::run, "write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    void insert(Repository<?> repository, MoneyRecord record) {
+        enqueue(new Mutation(Operation.INSERT, repository, record));
+    }
+
+    void update(Repository<?> repository, MoneyRecord record) {
+        enqueue(new Mutation(Operation.UPDATE, repository, record));
+    }
+
+    void delete(Repository<?> repository, MoneyRecord record) {
+        enqueue(new Mutation(Operation.DELETE, repository, record));
+    }
+
+    int getPendingCount() {
+        synchronized (lock) {
+            return pending.size() + inFlight;
+        }
+    }
+
+    /**
+     * Writes all pending mutations and waits for completion.
+     *
+     * @throws RuntimeException if pending mutations could not be written, they stay in the queue
+     */
+    void flush() {
+        synchronized (lock) {
+            var failuresBefore = failureCount;
+            flushRequests++;
+            retryDelayed = false;
+            lock.notifyAll();
+            try {
+                while ((!pending.isEmpty() || inFlight > 0) && failureCount == failuresBefore) {
+                    lock.wait();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(ex);
+            } finally {
+                flushRequests--;
+            }
+
+            if (failureCount != failuresBefore) {
+                throw new RuntimeException("Pending changes were not written", failure);
+            }
+        }
+    }
+
+    /**
+     * Flushes pending mutations and stops writer thread. Subsequent mutations are rejected.
+     */
+    @Override
+    public void close() {
+        try {
+            flush();
+        } finally {
+            synchronized (lock) {
+                closed = true;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void enqueue(Mutation mutation) {
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("Write queue is closed");
+            }
+
+            var uuid = mutation.record.uuid();
+            if (mutation.operation == Operation.UPDATE) {
+                var existing = mergeable.get(uuid);
+                if (existing != null && existing.repository == mutation.repository
+                    && existing.sequence >= lastInsertSequence)
+                {
+                    existing.record = mutation.record;
+                    return;
+                }
+            }
+
+            if (pending.isEmpty()) {
+                firstPendingNanos = System.nanoTime();
+            }
+            mutation.sequence = nextSequence++;
+            if (mutation.operation == Operation.INSERT) {
+                lastInsertSequence = mutation.sequence;
+            }
+            pending.add(mutation);
+            if (mutation.operation == Operation.DELETE) {
+                mergeable.remove(uuid);
+            } else {
+                mergeable.put(uuid, mutation);
+            }
+            lock.notifyAll();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            List<Mutation> batch;
+
+            synchronized (lock) {
+                try {
+                    while (pending.isEmpty() && !closed) {
+                        lock.wait();
+                    }
+                    if (pending.isEmpty()) {
+                        return;
+                    }
+
+                    while (!closed && (retryDelayed || flushRequests == 0 && pending.size() < maxBatchSize)) {
+                        var remaining = firstPendingNanos + maxLatencyNanos - System.nanoTime();
+                        if (remaining <= 0) {
+                            retryDelayed = false;
+                            break;
+                        }
+                        TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                    }
+                } catch (InterruptedException ex) {
+                    // Pending mutations are still written
+                }
+
+                // Mutations that failed on close were already reported by flush
+                if (closed && retryDelayed) {
+                    return;
+                }
+
+                var size = Math.min(pending.size(), maxBatchSize);
+                var head = pending.subList(0, size);
+                batch = new ArrayList<>(head);
+                head.clear();
+
+                for (var mutation : batch) {
+                    mergeable.remove(mutation.record.uuid(), mutation);
+                }
+                inFlight = batch.size();
+            }
+
+            try {
+                write(batch);
+            } catch (Exception ex) {
+                // Failed mutations are kept at the head of the queue, thus a fresh batch starts with a new mutation
+                var firstFailure = batch.get(0).failedAttempts == 0;
+                batch.forEach(mutation -> mutation.failedAttempts++);
+
+                if (batch.get(0).failedAttempts < MAX_ATTEMPTS) {
+                    synchronized (lock) {
+                        // Failed mutations are written before any later mutation
+                        pending.addAll(0, batch);
+                        firstPendingNanos = System.nanoTime();
+                        retryDelayed = true;
+                        failure = ex;
+                        failureCount++;
+                    }
+                    if (firstFailure) {
+                        errorHandler.accept(ex);
+                    }
+                } else {
+                    writeSeparately(batch).ifPresent(discarded -> {
+                        synchronized (lock) {
+                            failure = discarded;
+                            failureCount++;
+                        }
+                        errorHandler.accept(discarded);
+                    });
+                }
+            } finally {
+                synchronized (lock) {
+                    inFlight = 0;
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes each mutation in its own database transaction, mutations that fail are discarded.
+     *
+     * @param batch mutations
+     * @return exception describing discarded mutations, empty if all mutations were written
+     */
+    private Optional<Exception> writeSeparately(List<Mutation> batch) {
+        var discarded = new ArrayList<String>();
+        var failures = new ArrayList<Exception>();
+
+        for (var mutation : batch) {
+            try {
+                write(List.of(mutation));
+            } catch (Exception ex) {
+                discarded.add(mutation.operation + " " + mutation.record.uuid());
+                failures.add(ex);
+            }
+        }
+
+        if (discarded.isEmpty()) {
+            return Optional.empty();
+        }
+
+        var result = new RuntimeException("Changes were not written after " + MAX_ATTEMPTS
+            + " attempts and were discarded: " + String.join(", ", discarded));
+        failures.forEach(result::addSuppressed);
+        return Optional.of(result);
+    }
+
+    /**
+     * Writes mutations in a single database transaction. Consecutive mutations of the same kind are sent as a
+     * single JDBC batch, thus order of inserts required by foreign keys is preserved.
+     *
+     * @param batch mutations
+     * @throws SQLException if database transaction fails
+     */
+    private void write(List<Mutation> batch) throws SQLException {
+        try (var conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                var start = 0;
+                while (start < batch.size()) {
+                    var first = batch.get(start);
+                    var end = start + 1;
+                    while (end < batch.size()
+                        && batch.get(end).operation == first.operation
+                        && batch.get(end).repository == first.repository)
+                    {
+                        end++;
+                    }
+
+                    var records = batch.subList(start, end).stream()
+                        .map(m -> m.record)
+                        .toList();
+                    writeRun(conn, first.operation, first.repository, records);
+                    start = end;
+                }
+                conn.commit();
+            } catch (Exception ex) {
+                conn.rollback();
+                throw ex;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends MoneyRecord> void writeRun(Connection conn, Operation operation,
+                                                          Repository<?> repository, List<MoneyRecord> records)
+    {
+        var typedRepository = (Repository<T>) repository;
+        var typedRecords = (List<T>) (List<?>) records;
+
+        switch (operation) {
+            case INSERT -> typedRepository.insert(conn, JDBC_BATCH_SIZE, typedRecords);
+            case UPDATE -> typedRepository.update(conn, JDBC_BATCH_SIZE, typedRecords);
+            case DELETE -> typedRepository.delete(conn, JDBC_BATCH_SIZE, typedRecords);
+        }
+    }
+}
@@ -9,13 +9,16 @@ import org.panteleyev.money.model.Category;
 import org.panteleyev.money.model.Contact;
 import org.panteleyev.money.model.Currency;
 import org.panteleyev.money.model.Icon;
+import org.panteleyev.money.model.MoneyRecord;
 import org.panteleyev.money.model.Transaction;
 import javax.xml.XMLConstants;
+import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
 import java.io.InputStream;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class Import {
     private static final String SCHEMA = "/org/panteleyev/money/xsd/money.xsd";
@@ -64,22 +67,38 @@ public class Import {
 
     public static Import doImport(InputStream inStream) {
         try {
-            if (moneySchema == null) {
-                var factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-                moneySchema = factory.newSchema(Import.class.getResource(SCHEMA));
-            }
-
-            var factory = SAXParserFactory.newInstance();
-            factory.setSchema(moneySchema);
-            factory.setValidating(true);
-            var parser = factory.newSAXParser();
-
             var importParser = new ImportParser();
-            parser.parse(inStream, importParser);
-
+            newParser().parse(inStream, importParser);
             return new Import(importParser);
         } catch (Exception ex) {
             throw new RuntimeException(ex);
         }
     }
+
+    /**
+     * Parses XML and passes each record to the consumer as soon as it is read. Records are not accumulated, thus
+     * memory consumption does not depend on the file size. Records are passed in the file order.
+     *
+     * @param inStream input stream
+     * @param consumer record consumer
+     */
+    public static void parse(InputStream inStream, Consumer<MoneyRecord> consumer) {
+        try {
+            newParser().parse(inStream, new ImportParser(consumer));
+        } catch (Exception ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private static SAXParser newParser() throws Exception {
+        if (moneySchema == null) {
+            var factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+            moneySchema = factory.newSchema(Import.class.getResource(SCHEMA));
+        }
+
+        var factory = SAXParserFactory.newInstance();
+        factory.setSchema(moneySchema);
+        factory.setValidating(true);
+        return factory.newSAXParser();
+    }
 }
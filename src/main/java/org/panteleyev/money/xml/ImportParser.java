@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import static java.lang.Integer.parseInt;
 
@@ -79,9 +80,20 @@ class ImportParser extends DefaultHandler {
         Map.entry(Tag.Transaction, transactions)
     );
 
+    // Receives records instead of the lists when set
+    private final Consumer<MoneyRecord> consumer;
+
     private Map<String, String> tags = null;
     private final StringBuilder currentCharacters = new StringBuilder();
 
+    ImportParser() {
+        this(null);
+    }
+
+    ImportParser(Consumer<MoneyRecord> consumer) {
+        this.consumer = consumer;
+    }
+
     public List<Icon> getIcons() {
         return icons;
     }
@@ -120,9 +132,12 @@ class ImportParser extends DefaultHandler {
         super.endElement(uri, localName, qName);
 
         Tag.getTag(qName).ifPresentOrElse(tag -> {
-            var list = RECORD_LISTS.get(tag);
             var record = tag.getParseMethod().apply(tags);
-            ((List<MoneyRecord>) list).add(record);
+            if (consumer == null) {
+                ((List<MoneyRecord>) RECORD_LISTS.get(tag)).add(record);
+            } else {
+                consumer.accept(record);
+            }
             tags = null;
         }, () -> {
             if (tags != null) {
@@ -32,6 +32,16 @@ public class ProfileSettingsTest {
             randomString(),
             randomString(),
             randomString()
+        ),
+        new ConnectionProfile(
+            ConnectionType.EMBEDDED,
+            randomString(),
+            randomString(),
+            randomInt(),
+            randomString(),
+            randomString(),
+            randomString(),
+            randomString()
         )
     );
 
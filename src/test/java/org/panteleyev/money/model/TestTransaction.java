@@ -8,6 +8,7 @@ import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.List;
 import java.util.UUID;
 import static org.panteleyev.money.test.BaseTestUtils.RANDOM;
 import static org.panteleyev.money.test.BaseTestUtils.newTransaction;
@@ -238,6 +239,28 @@ public class TestTransaction extends ModelTestBase {
         assertTrue(t2.modified() >= t1.modified());
     }
 
+    @Test
+    public void testEpochDay() {
+        var dates = List.of(
+            LocalDate.of(1970, 1, 1),
+            LocalDate.of(1969, 12, 31),
+            LocalDate.of(1900, 3, 1),
+            LocalDate.of(2000, 2, 29),
+            LocalDate.of(2000, 3, 1),
+            LocalDate.of(2021, 12, 31),
+            LocalDate.of(1, 1, 1)
+        );
+        for (var date : dates) {
+            assertEquals(Transaction.toEpochDay(date.getYear(), date.getMonthValue(), date.getDayOfMonth()),
+                date.toEpochDay());
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            var t = newTransaction();
+            assertEquals(t.epochDay(), t.getDate().toEpochDay());
+        }
+    }
+
     @Test
     public void testCopy() {
         var original = newTransaction();
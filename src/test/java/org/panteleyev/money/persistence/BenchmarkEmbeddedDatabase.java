@@ -0,0 +1,156 @@
+/*
+ Copyright (c) Petr Panteleyev. All rights reserved.
+ Licensed under the BSD license. See LICENSE file in the project root for full license information.
+ */
+package org.panteleyev.money.persistence;
+
+import com.mysql.cj.jdbc.MysqlDataSource;
+import org.h2.jdbcx.JdbcDataSource;
+import org.panteleyev.money.model.Transaction;
+import org.panteleyev.money.test.BaseTest;
+import org.testng.SkipException;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import javax.sql.DataSource;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import static org.panteleyev.money.persistence.MoneyDAO.IGNORE_PROGRESS;
+import static org.panteleyev.money.test.BaseTestUtils.newAccount;
+import static org.panteleyev.money.test.BaseTestUtils.newCategory;
+import static org.panteleyev.money.test.BaseTestUtils.newContact;
+import static org.panteleyev.money.test.BaseTestUtils.newCurrency;
+import static org.panteleyev.money.test.BaseTestUtils.newTransaction;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Compares startup and write latency of an embedded database file with a MySQL server. Both databases are filled
+ * from the same seed by {@link MoneyDAO#copyDatabase}. This benchmark is not included into the test suite, run it
+ * explicitly:
+ * <pre>mvn test -Dtest=BenchmarkEmbeddedDatabase -Dbenchmark.mysql.url=jdbc:mysql://localhost:3306/bench
+ *     -Dbenchmark.mysql.user=user -Dbenchmark.mysql.password=password</pre>
+ * MySQL part is skipped if URL is not set. All data of the MySQL schema is lost.
+ */
+public class BenchmarkEmbeddedDatabase extends BaseTest {
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 50_000);
+    private static final int WRITES = Integer.getInteger("benchmark.writes", 1000);
+    private static final String MYSQL_URL = System.getProperty("benchmark.mysql.url");
+
+    private final JdbcDataSource seed = new JdbcDataSource();
+    private Path directory;
+
+    @BeforeClass
+    public void setupAndSkip() {
+        try {
+            seed.setURL("jdbc:h2:mem:seed;DB_CLOSE_DELAY=-1");
+            // Liquibase leaves auto-commit disabled, records are inserted on a separate connection
+            try (var conn = seed.getConnection()) {
+                new LiquibaseUtil(conn).update();
+            }
+
+            try (var conn = seed.getConnection()) {
+                var currency = newCurrency();
+                var category = newCategory();
+                var contact = newContact();
+                var accounts = List.of(newAccount(category, currency), newAccount(category, currency));
+
+                new CurrencyRepository(seed).insert(conn, currency);
+                new CategoryRepository(seed).insert(conn, category);
+                new ContactRepository(seed).insert(conn, contact);
+                new AccountRepository(seed).insert(conn, 100, accounts);
+
+                var transactions = new ArrayList<Transaction>(ROWS);
+                for (int i = 0; i < ROWS; i++) {
+                    transactions.add(newTransaction(accounts.get(i % 2), accounts.get((i + 1) % 2), contact));
+                }
+                new TransactionRepository(seed).insert(conn, 1000, transactions);
+            }
+            directory = Files.createTempDirectory("money-benchmark");
+        } catch (Exception ex) {
+            throw new SkipException(ex.getMessage());
+        }
+    }
+
+    @AfterClass
+    public void cleanup() {
+        if (directory != null) {
+            var files = directory.toFile().listFiles();
+            if (files != null) {
+                Arrays.stream(files).forEach(File::delete);
+            }
+            directory.toFile().delete();
+        }
+    }
+
+    @Test
+    public void benchmarkEmbedded() {
+        var dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:file:" + directory.resolve("money"));
+        benchmark("Embedded", dataSource);
+    }
+
+    @Test
+    public void benchmarkMysql() {
+        if (MYSQL_URL == null) {
+            throw new SkipException("benchmark.mysql.url is not set");
+        }
+
+        var dataSource = new MysqlDataSource();
+        dataSource.setURL(MYSQL_URL);
+        dataSource.setUser(System.getProperty("benchmark.mysql.user", ""));
+        dataSource.setPassword(System.getProperty("benchmark.mysql.password", ""));
+        benchmark("MySQL", dataSource);
+    }
+
+    private void benchmark(String name, DataSource dataSource) {
+        var start = System.nanoTime();
+        MoneyDAO.copyDatabase(seed, dataSource, IGNORE_PROGRESS);
+        var copyMillis = elapsedMillis(start);
+
+        // Startup as performed on profile open: schema check and preload
+        start = System.nanoTime();
+        try (var conn = dataSource.getConnection()) {
+            assertEquals(new LiquibaseUtil(conn).checkSchemaUpdateStatus(), LiquibaseUtil.SchemaStatus.UP_TO_DATE);
+        } catch (Exception ex) {
+            throw new RuntimeException(ex);
+        }
+        new IconRepository(dataSource).getAll();
+        new CategoryRepository(dataSource).getAll();
+        new CurrencyRepository(dataSource).getAll();
+        new ContactRepository(dataSource).getAll();
+        new AccountRepository(dataSource).getAll();
+        var repository = new TransactionRepository(dataSource);
+        var transactions = repository.getAll();
+        var startupMillis = elapsedMillis(start);
+        assertEquals(transactions.size(), ROWS);
+
+        // Single updates in auto-commit mode as performed without write-behind
+        var latencies = new long[Math.min(WRITES, transactions.size())];
+        for (int i = 0; i < latencies.length; i++) {
+            var update = new Transaction.Builder(transactions.get(i))
+                .comment("Update " + i)
+                .modified(System.currentTimeMillis())
+                .build();
+            start = System.nanoTime();
+            repository.update(update);
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+
+        System.out.printf("%s database, %d rows%n", name, ROWS);
+        System.out.printf("    copy:    %,d ms%n", copyMillis);
+        System.out.printf("    startup: %,d ms%n", startupMillis);
+        System.out.printf("    write:   median %,d us, p99 %,d us%n",
+            TimeUnit.NANOSECONDS.toMicros(latencies[latencies.length / 2]),
+            TimeUnit.NANOSECONDS.toMicros(latencies[latencies.length * 99 / 100]));
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ Copyright (c) Petr Panteleyev. All rights reserved.
+ Licensed under the BSD license. See LICENSE file in the project root for full license information.
+ */
+package org.panteleyev.money.persistence;
+
+import com.mysql.cj.jdbc.MysqlDataSource;
+import org.h2.jdbcx.JdbcDataSource;
+import org.panteleyev.money.model.CategoryType;
+import org.panteleyev.money.model.Transaction;
+import org.panteleyev.money.model.TransactionType;
+import org.panteleyev.money.test.BaseTest;
+import org.testng.SkipException;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import javax.sql.DataSource;
+import java.nio.ByteBuffer;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import static org.panteleyev.money.test.BaseTestUtils.newAccount;
+import static org.panteleyev.money.test.BaseTestUtils.newCategory;
+import static org.panteleyev.money.test.BaseTestUtils.newContact;
+import static org.panteleyev.money.test.BaseTestUtils.newCurrency;
+import static org.panteleyev.money.test.BaseTestUtils.newTransaction;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Compares transaction load throughput of label based result set mapping with index based mapping used by
+ * {@link TransactionRepository}. This benchmark is not included into the test suite, run it explicitly:
+ * <pre>mvn test -Dtest=BenchmarkTransactionLoad -Dbenchmark.rows=1000000</pre>
+ * In-memory H2 database is used unless MySQL URL is set by {@code -Dbenchmark.mysql.url},
+ * {@code -Dbenchmark.mysql.user} and {@code -Dbenchmark.mysql.password}. All data of the MySQL schema is lost.
+ */
+public class BenchmarkTransactionLoad extends BaseTest {
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 200_000);
+    private static final int ROUNDS = 5;
+    private static final String MYSQL_URL = System.getProperty("benchmark.mysql.url");
+
+    private DataSource dataSource;
+    private TransactionRepository repository;
+
+    @BeforeClass
+    public void setupAndSkip() {
+        try {
+            dataSource = MYSQL_URL == null ? h2DataSource() : mysqlDataSource();
+            // Liquibase leaves auto-commit disabled, thus data is inserted using separate connection
+            try (var conn = dataSource.getConnection()) {
+                new LiquibaseUtil(conn).dropAndUpdate();
+            }
+
+            try (var conn = dataSource.getConnection()) {
+                var currency = newCurrency();
+                var category = newCategory();
+                var contact = newContact();
+                var accounts = List.of(newAccount(category, currency), newAccount(category, currency));
+
+                new CurrencyRepository(dataSource).insert(conn, currency);
+                new CategoryRepository(dataSource).insert(conn, category);
+                new ContactRepository(dataSource).insert(conn, contact);
+                new AccountRepository(dataSource).insert(conn, 100, accounts);
+
+                repository = new TransactionRepository(dataSource);
+                var transactions = new ArrayList<Transaction>(ROWS);
+                for (int i = 0; i < ROWS; i++) {
+                    transactions.add(newTransaction(accounts.get(i % 2), accounts.get((i + 1) % 2), contact));
+                }
+                repository.insert(conn, 1000, transactions);
+            }
+        } catch (Exception ex) {
+            throw new SkipException(ex.getMessage());
+        }
+    }
+
+    @Test
+    public void benchmark() throws Exception {
+        // Warm up
+        assertEquals(loadByLabel().size(), ROWS);
+        assertEquals(repository.getAll().size(), ROWS);
+
+        long labelNanos = 0;
+        long indexNanos = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            var start = System.nanoTime();
+            loadByLabel();
+            labelNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            repository.getAll();
+            indexNanos += System.nanoTime() - start;
+        }
+
+        System.out.printf("Transaction load, %s, %d rows, %d rounds%n", MYSQL_URL == null ? "H2" : "MySQL", ROWS,
+            ROUNDS);
+        System.out.printf("    by label: %,.0f rows/s%n", throughput(labelNanos));
+        System.out.printf("    by index: %,.0f rows/s%n", throughput(indexNanos));
+    }
+
+    private static DataSource h2DataSource() {
+        var h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1");
+        return h2;
+    }
+
+    private static DataSource mysqlDataSource() {
+        var mysql = new MysqlDataSource();
+        mysql.setURL(MYSQL_URL);
+        mysql.setUser(System.getProperty("benchmark.mysql.user", ""));
+        mysql.setPassword(System.getProperty("benchmark.mysql.password", ""));
+        return mysql;
+    }
+
+    private static double throughput(long nanos) {
+        return (double) ROWS * ROUNDS * 1_000_000_000 / nanos;
+    }
+
+    /**
+     * Reproduces result set mapping used before column index based mapping.
+     */
+    private List<Transaction> loadByLabel() throws SQLException {
+        try (var conn = dataSource.getConnection(); var st = conn.prepareStatement("SELECT * FROM transaction")) {
+            var result = new ArrayList<Transaction>();
+            try (var rs = st.executeQuery()) {
+                while (rs.next()) {
+                    result.add(new Transaction(
+                        getUuid(rs, "uuid"),
+                        rs.getBigDecimal("amount"),
+                        rs.getInt("day"),
+                        rs.getInt("month"),
+                        rs.getInt("year"),
+                        getEnum(rs, "type", TransactionType.class),
+                        rs.getString("comment"),
+                        rs.getInt("checked") != 0,
+                        getUuid(rs, "acc_debited_uuid"),
+                        getUuid(rs, "acc_credited_uuid"),
+                        getEnum(rs, "acc_debited_type", CategoryType.class),
+                        getEnum(rs, "acc_credited_type", CategoryType.class),
+                        getUuid(rs, "acc_debited_category_uuid"),
+                        getUuid(rs, "acc_credited_category_uuid"),
+                        getUuid(rs, "contact_uuid"),
+                        rs.getBigDecimal("rate"),
+                        rs.getInt("rate_direction"),
+                        rs.getString("invoice_number"),
+                        getUuid(rs, "parent_uuid"),
+                        rs.getInt("detailed") != 0,
+                        rs.getObject("statement_date") == null ?
+                            null : LocalDate.ofEpochDay(rs.getLong("statement_date")),
+                        rs.getLong("created"),
+                        rs.getLong("modified")
+                    ));
+                }
+            }
+            return result;
+        }
+    }
+
+    private static UUID getUuid(ResultSet set, String columnLabel) throws SQLException {
+        var bytes = set.getBytes(columnLabel);
+        if (bytes == null) {
+            return null;
+        }
+        var buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    private static <E extends Enum<E>> E getEnum(ResultSet set, String columnLabel, Class<E> eClass)
+        throws SQLException
+    {
+        var str = set.getString(columnLabel);
+        return str == null ? null : E.valueOf(eClass, str);
+    }
+}
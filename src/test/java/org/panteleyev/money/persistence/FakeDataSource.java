@@ -0,0 +1,198 @@
+/*
+ Copyright (c) Petr Panteleyev. All rights reserved.
+ Licensed under the BSD license. See LICENSE file in the project root for full license information.
+ */
+package org.panteleyev.money.persistence;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLRecoverableException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Data source that creates fake connections without database. Connections become invalid when network is down,
+ * {@link Connection#createStatement()} always fails with connection error. Prepared statements accept any
+ * parameters and execute without effect, batch execution fails when writes are disabled or the statement is set
+ * to fail.
+ */
+class FakeDataSource implements DataSource {
+    private final List<Connection> connections = new ArrayList<>();
+    private final Map<String, Integer> prepareCounts = new HashMap<>();
+    private final Map<String, Integer> batchCounts = new HashMap<>();
+    private final Set<String> failingSql = new HashSet<>();
+    private boolean networkDown = false;
+    private boolean writeFailure = false;
+    private int rollbacks = 0;
+    private int commits = 0;
+
+    List<Connection> getConnections() {
+        return connections;
+    }
+
+    void setNetworkDown(boolean networkDown) {
+        this.networkDown = networkDown;
+    }
+
+    void setWriteFailure(boolean writeFailure) {
+        this.writeFailure = writeFailure;
+    }
+
+    /**
+     * Makes batch execution of the SQL text always fail.
+     *
+     * @param sql SQL text
+     */
+    void addFailingSql(String sql) {
+        failingSql.add(sql);
+    }
+
+    int getRollbacks() {
+        return rollbacks;
+    }
+
+    int getCommits() {
+        return commits;
+    }
+
+    /**
+     * Returns number of statements added to batches of the SQL text by all connections.
+     *
+     * @param sql SQL text
+     * @return number of addBatch calls
+     */
+    int getBatchCount(String sql) {
+        return batchCounts.getOrDefault(sql, 0);
+    }
+
+    /**
+     * Returns number of times the statement was prepared by all connections.
+     *
+     * @param sql SQL text
+     * @return number of prepare calls
+     */
+    int getPrepareCount(String sql) {
+        return prepareCounts.getOrDefault(sql, 0);
+    }
+
+    @Override
+    public Connection getConnection() {
+        var state = new Object() {
+            boolean closed = false;
+            boolean autoCommit = true;
+        };
+
+        var connection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+            new Class<?>[]{Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+                case "close", "abort" -> {
+                    state.closed = true;
+                    yield null;
+                }
+                case "isClosed" -> state.closed;
+                case "isValid" -> !state.closed && !networkDown;
+                case "getAutoCommit" -> state.autoCommit;
+                case "setAutoCommit" -> {
+                    state.autoCommit = (Boolean) args[0];
+                    yield null;
+                }
+                case "rollback" -> {
+                    rollbacks++;
+                    yield null;
+                }
+                case "commit" -> {
+                    commits++;
+                    yield null;
+                }
+                case "prepareStatement" -> {
+                    prepareCounts.merge((String) args[0], 1, Integer::sum);
+                    yield newStatement((String) args[0]);
+                }
+                case "createStatement" -> throw new SQLRecoverableException("Communications link failure");
+                case "isWrapperFor" -> false;
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                default -> null;
+            });
+
+        connections.add(connection);
+        return connection;
+    }
+
+    private PreparedStatement newStatement(String sql) {
+        var state = new Object() {
+            boolean closed = false;
+        };
+
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+            new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> switch (method.getName()) {
+                case "close" -> {
+                    state.closed = true;
+                    yield null;
+                }
+                case "isClosed" -> state.closed;
+                case "execute" -> false;
+                case "executeUpdate" -> 1;
+                case "addBatch" -> {
+                    batchCounts.merge(sql, 1, Integer::sum);
+                    yield null;
+                }
+                case "executeBatch" -> {
+                    if (writeFailure || failingSql.contains(sql)) {
+                        throw new SQLException("Write failed");
+                    }
+                    yield new int[0];
+                }
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                default -> null;
+            });
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) {
+        return getConnection();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return 0;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        throw new SQLException();
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return false;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ Copyright (c) Petr Panteleyev. All rights reserved.
+ Licensed under the BSD license. See LICENSE file in the project root for full license information.
+ */
+package org.panteleyev.money.persistence;
+
+import com.mysql.cj.jdbc.MysqlDataSource;
+import org.h2.jdbcx.JdbcDataSource;
+import org.panteleyev.money.model.MoneyRecord;
+import org.panteleyev.money.model.Transaction;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
+import static org.panteleyev.money.persistence.MoneyDAO.IGNORE_PROGRESS;
+import static org.panteleyev.money.test.BaseTestUtils.newAccount;
+import static org.panteleyev.money.test.BaseTestUtils.newCategory;
+import static org.panteleyev.money.test.BaseTestUtils.newContact;
+import static org.panteleyev.money.test.BaseTestUtils.newCurrency;
+import static org.panteleyev.money.test.BaseTestUtils.newTransaction;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * MySQL part is executed when MySQL URL is set by {@code -Dtest.mysql.url}, {@code -Dtest.mysql.user} and
+ * {@code -Dtest.mysql.password}. All data of the MySQL schema is lost.
+ */
+public class TestBulkLoad {
+    private static final String MYSQL_URL = System.getProperty("test.mysql.url");
+
+    @Test
+    public void testFallback() throws Exception {
+        var target = new FakeDataSource();
+
+        // Not a MySQL connection, session settings are not touched
+        try (var conn = target.getConnection()) {
+            assertTrue(BulkLoad.begin(conn).isEmpty());
+            assertTrue(conn.getAutoCommit());
+        }
+
+        var pool = new ConnectionPool.Builder(target).build();
+        try (var conn = pool.getConnection()) {
+            assertTrue(BulkLoad.begin(conn).isEmpty());
+        }
+    }
+
+    @Test
+    public void testMySql() throws Exception {
+        if (MYSQL_URL == null) {
+            throw new SkipException("MySQL is not configured");
+        }
+
+        var mysql = new MysqlDataSource();
+        mysql.setURL(MYSQL_URL);
+        mysql.setUser(System.getProperty("test.mysql.user"));
+        mysql.setPassword(System.getProperty("test.mysql.password"));
+
+        var source = new JdbcDataSource();
+        source.setURL("jdbc:h2:mem:bulk;DB_CLOSE_DELAY=-1");
+        try (var conn = source.getConnection()) {
+            new LiquibaseUtil(conn).dropAndUpdate();
+        }
+
+        var category = newCategory();
+        var currency = newCurrency();
+        var contact = newContact();
+        var account = newAccount(category, currency);
+        var parent = new Transaction.Builder(newTransaction(account, account, contact))
+            .detailed(true)
+            .build();
+        var detail = new Transaction.Builder(newTransaction(account, account))
+            .parentUuid(parent.uuid())
+            .build();
+        new CategoryRepository(source).insert(category);
+        new CurrencyRepository(source).insert(currency);
+        new ContactRepository(source).insert(contact);
+        new AccountRepository(source).insert(account);
+        new TransactionRepository(source).insert(parent);
+        new TransactionRepository(source).insert(detail);
+        for (int i = 0; i < 100; i++) {
+            new TransactionRepository(source).insert(newTransaction(account, account, contact));
+        }
+
+        MoneyDAO.copyDatabase(source, mysql, IGNORE_PROGRESS);
+
+        assertEquals(Set.copyOf(new CategoryRepository(mysql).getAll()), Set.of(category));
+        assertEquals(Set.copyOf(new CurrencyRepository(mysql).getAll()), Set.of(currency));
+        assertEquals(Set.copyOf(new ContactRepository(mysql).getAll()), Set.of(contact));
+        assertEquals(Set.copyOf(new AccountRepository(mysql).getAll()), Set.of(account));
+        assertEquals(Set.copyOf(new TransactionRepository(mysql).getAll()),
+            Set.copyOf(new TransactionRepository(source).getAll()));
+
+        // Orphan detail is rejected although foreign key checks are disabled, nothing is committed
+        var orphanCategory = newCategory();
+        var orphanCurrency = newCurrency();
+        var orphanAccount = newAccount(orphanCategory, orphanCurrency);
+        var orphan = new Transaction.Builder(newTransaction(orphanAccount, orphanAccount))
+            .parentUuid(newTransaction(orphanAccount, orphanAccount).uuid())
+            .build();
+        try (var conn = mysql.getConnection(); var session = BulkLoad.begin(conn).orElseThrow()) {
+            assertEquals(getVariable(conn, "foreign_key_checks"), 0);
+
+            var loader = new FullDumpLoader(conn, 100,
+                new IconRepository(mysql), new CategoryRepository(mysql), new CurrencyRepository(mysql),
+                new ContactRepository(mysql), new AccountRepository(mysql), new TransactionRepository(mysql));
+            for (var record : List.<MoneyRecord>of(orphanCategory, orphanCurrency, orphanAccount, orphan)) {
+                loader.accept(record);
+            }
+            assertThrows(IllegalStateException.class, loader::finish);
+        }
+        assertFalse(new CategoryRepository(mysql).get(orphanCategory.uuid()).isPresent());
+        assertFalse(new TransactionRepository(mysql).get(orphan.uuid()).isPresent());
+
+        // Session settings are restored
+        try (var conn = mysql.getConnection()) {
+            BulkLoad.begin(conn).orElseThrow().close();
+            assertEquals(getVariable(conn, "foreign_key_checks"), 1);
+            assertEquals(getVariable(conn, "unique_checks"), 1);
+            assertTrue(conn.getAutoCommit());
+        }
+    }
+
+    private static int getVariable(Connection conn, String name) throws SQLException {
+        try (var st = conn.createStatement(); var rs = st.executeQuery("SELECT @@" + name)) {
+            assertTrue(rs.next());
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ Copyright (c) Petr Panteleyev. All rights reserved.
+ Licensed under the BSD license. See LICENSE file in the project root for full license information.
+ */
+package org.panteleyev.money.persistence;
+
+import org.testng.annotations.Test;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.TimeUnit;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+public class TestConnectionPool {
+    @Test
+    public void testReuse() throws Exception {
+        var target = new FakeDataSource();
+        var pool = new ConnectionPool.Builder(target).maxSize(2).build();
+
+        try (var conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+        }
+        try (var conn = pool.getConnection()) {
+            // Returned connection is rolled back and reset
+            assertTrue(conn.getAutoCommit());
+            assertEquals(target.getRollbacks(), 1);
+        }
+
+        assertEquals(target.getConnections().size(), 1);
+
+        var metrics = pool.getMetrics();
+        assertEquals(metrics.maxSize(), 2);
+        assertEquals(metrics.active(), 0);
+        assertEquals(metrics.idle(), 1);
+        assertEquals(metrics.requests(), 2);
+        assertEquals(metrics.created(), 1);
+        assertEquals(metrics.discarded(), 0);
+    }
+
+    @Test
+    public void testClosedProxy() throws Exception {
+        var pool = new ConnectionPool.Builder(new FakeDataSource()).build();
+
+        var conn = pool.getConnection();
+        conn.close();
+        assertTrue(conn.isClosed());
+        assertThrows(SQLException.class, conn::getAutoCommit);
+
+        // Second close must not return connection twice
+        conn.close();
+        assertEquals(pool.getMetrics().idle(), 1);
+    }
+
+    @Test
+    public void testUnwrap() throws Exception {
+        var pool = new ConnectionPool.Builder(new FakeDataSource()).build();
+
+        try (var conn = pool.getConnection()) {
+            assertTrue(conn.isWrapperFor(Connection.class));
+            assertSame(conn.unwrap(Connection.class), conn);
+        }
+        assertEquals(pool.getMetrics().idle(), 1);
+    }
+
+    @Test
+    public void testAborted() throws Exception {
+        var pool = new ConnectionPool.Builder(new FakeDataSource()).build();
+
+        try (var conn = pool.getConnection()) {
+            conn.abort(Runnable::run);
+        }
+
+        var metrics = pool.getMetrics();
+        assertEquals(metrics.idle(), 0);
+        assertEquals(metrics.discarded(), 1);
+    }
+
+    @Test
+    public void testBounded() throws Exception {
+        var target = new FakeDataSource();
+        var pool = new ConnectionPool.Builder(target)
+            .maxSize(2)
+            .timeout(50, TimeUnit.MILLISECONDS)
+            .build();
+
+        var c1 = pool.getConnection();
+        var c2 = pool.getConnection();
+        assertNotSame(c1, c2);
+        assertEquals(pool.getMetrics().active(), 2);
+        assertThrows(SQLTimeoutException.class, pool::getConnection);
+
+        c1.close();
+        try (var c3 = pool.getConnection()) {
+            assertFalse(c3.isClosed());
+        }
+        c2.close();
+
+        assertEquals(target.getConnections().size(), 2);
+        assertEquals(pool.getMetrics().active(), 0);
+    }
+
+    @Test
+    public void testMaxLifetime() throws Exception {
+        var target = new FakeDataSource();
+        var pool = new ConnectionPool.Builder(target)
+            .maxLifetime(0, TimeUnit.MILLISECONDS)
+            .build();
+
+        // Expired connection is closed when returned
+        var c1 = pool.getConnection();
+        Thread.sleep(5);
+        c1.close();
+        assertTrue(target.getConnections().get(0).isClosed());
+        assertEquals(pool.getMetrics().idle(), 0);
+
+        pool.getConnection().close();
+        assertEquals(target.getConnections().size(), 2);
+    }
+
+    @Test
+    public void testIdleValidation() throws Exception {
+        var target = new FakeDataSource();
+        var pool = new ConnectionPool.Builder(target)
+            .validationInterval(0, TimeUnit.MILLISECONDS)
+            .build();
+
+        pool.getConnection().close();
+        target.setNetworkDown(true);
+        Thread.sleep(5);
+        pool.getConnection().close();
+
+        assertEquals(target.getConnections().size(), 2);
+        assertTrue(target.getConnections().get(0).isClosed());
+        assertEquals(pool.getMetrics().discarded(), 1);
+    }
+
+    @Test
+    public void testReconnect() throws Exception {
+        var target = new FakeDataSource();
+        var pool = new ConnectionPool.Builder(target).build();
+
+        var c1 = pool.getConnection();
+        var c2 = pool.getConnection();
+        c2.close();
+        assertEquals(pool.getMetrics().idle(), 1);
+
+        assertThrows(SQLRecoverableException.class, c1::createStatement);
+        c1.close();
+
+        // Broken connection and all idle ones are closed
+        assertEquals(pool.getMetrics().idle(), 0);
+        assertTrue(target.getConnections().get(0).isClosed());
+        assertTrue(target.getConnections().get(1).isClosed());
+
+        try (var c3 = pool.getConnection()) {
+            assertFalse(c3.isClosed());
+        }
+        assertEquals(target.getConnections().size(), 3);
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        var target = new FakeDataSource();
+        var pool = new ConnectionPool.Builder(target).build();
+
+        var c1 = pool.getConnection();
+        pool.getConnection().close();
+        pool.close();
+
+        assertTrue(target.getConnections().get(1).isClosed());
+        assertFalse(target.getConnections().get(0).isClosed());
+        c1.close();
+        assertTrue(target.getConnections().get(0).isClosed());
+
+        assertThrows(SQLException.class, pool::getConnection);
+        assertSame(pool.getTarget(), target);
+    }
+}
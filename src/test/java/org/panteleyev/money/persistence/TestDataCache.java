@@ -0,0 +1,606 @@
+/*
+ Copyright (c) Petr Panteleyev. All rights reserved.
+ Licensed under the BSD license. See LICENSE file in the project root for full license information.
+ */
+package org.panteleyev.money.persistence;
+
+import javafx.collections.ListChangeListener;
+import org.panteleyev.money.model.Account;
+import org.panteleyev.money.model.Category;
+import org.panteleyev.money.model.CategoryType;
+import org.panteleyev.money.model.Currency;
+import org.panteleyev.money.model.Transaction;
+import org.panteleyev.money.test.BaseTest;
+import org.testng.annotations.Test;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import static org.panteleyev.money.test.BaseTestUtils.newAccount;
+import static org.panteleyev.money.test.BaseTestUtils.newCategory;
+import static org.panteleyev.money.test.BaseTestUtils.newCurrency;
+import static org.panteleyev.money.test.BaseTestUtils.newTransaction;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * This test covers indexes maintained by {@link DataCache} without database interaction.
+ */
+public class TestDataCache extends BaseTest {
+    private final Currency currency = newCurrency();
+
+    private final Category cat1 = newCategory();
+    private final Category cat2 = newCategory();
+
+    private final Account acc1 = newAccount(cat1, currency);
+    private final Account acc2 = newAccount(cat1, currency);
+    private final Account acc3 = newAccount(cat2, currency);
+
+    @Test
+    public void testRecordIndex() {
+        var cache = new DataCache();
+
+        var tr1 = newTransaction();
+        var tr2 = newTransaction();
+        var tr3 = newTransaction();
+
+        cache.add(tr1);
+        cache.getTransactions().addAll(tr2, tr3);
+        assertEquals(cache.getTransaction(tr1.uuid()).orElseThrow(), tr1);
+        assertEquals(cache.getTransaction(tr2.uuid()).orElseThrow(), tr2);
+        assertEquals(cache.getTransaction(tr3.uuid()).orElseThrow(), tr3);
+        assertTrue(cache.getTransaction(UUID.randomUUID()).isEmpty());
+
+        // Update
+        var update = new Transaction.Builder(tr2)
+            .comment(UUID.randomUUID().toString())
+            .build();
+        cache.update(update);
+        assertEquals(cache.getTransaction(tr2.uuid()).orElseThrow(), update);
+        assertEquals(cache.getTransactions(), List.of(tr1, update, tr3));
+
+        // Remove from the middle shifts positions of the following records
+        cache.remove(tr1);
+        assertTrue(cache.getTransaction(tr1.uuid()).isEmpty());
+        assertEquals(cache.getTransactions(), List.of(update, tr3));
+
+        var tr3Update = new Transaction.Builder(tr3)
+            .comment(UUID.randomUUID().toString())
+            .build();
+        cache.update(tr3Update);
+        assertEquals(cache.getTransactions(), List.of(update, tr3Update));
+
+        // Direct list modification
+        cache.getTransactions().setAll(tr1);
+        assertEquals(cache.getTransaction(tr1.uuid()).orElseThrow(), tr1);
+        assertTrue(cache.getTransaction(tr2.uuid()).isEmpty());
+        assertTrue(cache.getTransaction(tr3.uuid()).isEmpty());
+
+        cache.clear();
+        assertTrue(cache.getTransaction(tr1.uuid()).isEmpty());
+    }
+
+    @Test
+    public void testRecordIndexStalePositions() {
+        var cache = new DataCache();
+
+        var transactions = new ArrayList<Transaction>();
+        for (int i = 0; i < 10; i++) {
+            transactions.add(newTransaction());
+        }
+        cache.getTransactions().addAll(transactions);
+
+        // Several shifting changes without lookups in between
+        var inserted = newTransaction();
+        cache.getTransactions().add(2, inserted);
+        cache.getTransactions().remove(5);
+        cache.getTransactions().remove(0);
+        transactions.add(2, inserted);
+        transactions.remove(5);
+        transactions.remove(0);
+
+        for (var t : List.copyOf(transactions)) {
+            var update = new Transaction.Builder(t)
+                .comment(UUID.randomUUID().toString())
+                .build();
+            cache.update(update);
+            transactions.set(transactions.indexOf(t), update);
+        }
+        assertEquals(cache.getTransactions(), transactions);
+
+        cache.remove(transactions.remove(transactions.size() - 1));
+        cache.remove(transactions.remove(1));
+        assertEquals(cache.getTransactions(), transactions);
+    }
+
+    @Test
+    public void testAccountAndCategoryIndexes() {
+        var cache = new DataCache();
+        cache.getCategories().addAll(cat1, cat2);
+        cache.getAccounts().addAll(acc1, acc2, acc3);
+
+        var tr1 = newTransaction(acc1, acc2);
+        var tr2 = newTransaction(acc2, acc3);
+        var tr3 = newTransaction(acc1, acc1);
+        cache.getTransactions().addAll(tr1, tr2, tr3);
+
+        assertRecords(cache.getTransactions(acc1), tr1, tr3);
+        assertRecords(cache.getTransactions(acc2), tr1, tr2);
+        assertRecords(cache.getTransactions(acc3), tr2);
+        assertEquals(cache.getTransactionCount(acc1), 2);
+        assertEquals(cache.getTransactionCount(acc3), 1);
+        assertRecords(cache.getTransactions(List.of(acc1, acc2)), tr1, tr2, tr3);
+        assertRecords(cache.getTransactionsByCategories(List.of(cat2)), tr2);
+        assertRecords(cache.getTransactionsByCategories(List.of(cat1)), tr1, tr2, tr3);
+
+        // Moving transaction to another account must update both keys
+        var update = new Transaction.Builder(tr3)
+            .accountCreditedUuid(acc3.uuid())
+            .accountCreditedCategoryUuid(cat2.uuid())
+            .accountCreditedType(acc3.type())
+            .build();
+        cache.update(update);
+        assertRecords(cache.getTransactions(acc1), tr1, update);
+        assertRecords(cache.getTransactions(acc3), tr2, update);
+        assertRecords(cache.getTransactionsByCategories(List.of(cat2)), tr2, update);
+
+        cache.remove(tr2);
+        assertRecords(cache.getTransactions(acc2), tr1);
+        assertEquals(cache.getTransactionCount(acc3), 1);
+
+        cache.getTransactions().clear();
+        assertEquals(cache.getTransactionCount(acc1), 0);
+        assertTrue(cache.getTransactions(acc2).isEmpty());
+    }
+
+    @Test
+    public void testTransactionDetails() {
+        var cache = new DataCache();
+
+        var parent = new Transaction.Builder(newTransaction(acc1, acc2))
+            .detailed(true)
+            .build();
+        var detail1 = new Transaction.Builder(newTransaction(acc1, acc2))
+            .parentUuid(parent.uuid())
+            .build();
+        var detail2 = new Transaction.Builder(newTransaction(acc1, acc3))
+            .parentUuid(parent.uuid())
+            .build();
+        cache.getTransactions().addAll(parent, detail1, detail2, newTransaction(acc1, acc2));
+
+        assertRecords(cache.getTransactionDetails(parent), detail1, detail2);
+        assertTrue(cache.getTransactionDetails(detail1).isEmpty());
+
+        cache.update(detail2.setParentUuid(null));
+        assertRecords(cache.getTransactionDetails(parent), detail1);
+
+        cache.remove(detail1);
+        assertTrue(cache.getTransactionDetails(parent).isEmpty());
+    }
+
+    private Transaction newTransactionOn(LocalDate date) {
+        return new Transaction.Builder(newTransaction(acc1, acc2))
+            .day(date.getDayOfMonth())
+            .month(date.getMonthValue())
+            .year(date.getYear())
+            .statementDate(date)
+            .build();
+    }
+
+    @Test
+    public void testCalendarIndex() {
+        var cache = new DataCache();
+
+        var tr1 = newTransactionOn(LocalDate.of(2020, 12, 31));
+        var tr2 = newTransactionOn(LocalDate.of(2021, 1, 1));
+        var tr3 = newTransactionOn(LocalDate.of(2021, 1, 31));
+        var tr4 = newTransactionOn(LocalDate.of(2021, 3, 15));
+        cache.getTransactions().addAll(tr1, tr2, tr3, tr4);
+
+        assertRecords(cache.getTransactions(1, 2021), tr2, tr3);
+        assertTrue(cache.getTransactions(2, 2021).isEmpty());
+        assertEquals(cache.getTransactions(LocalDate.of(2020, 12, 31), LocalDate.of(2021, 1, 31)),
+            List.of(tr1, tr2, tr3));
+        assertRecords(cache.getTransactions(LocalDate.of(2021, 1, 2), null), tr3, tr4);
+        assertRecords(cache.getTransactions(null, LocalDate.of(2021, 1, 1)), tr1, tr2);
+        assertRecords(cache.getTransactions(null, null), tr1, tr2, tr3, tr4);
+        assertTrue(cache.getTransactions(LocalDate.of(2021, 2, 1), LocalDate.of(2021, 1, 1)).isEmpty());
+        assertEquals(cache.getTransactionsByEpochDay(tr2.epochDay(), tr4.epochDay()), List.of(tr2, tr3, tr4));
+        assertEquals(cache.getTransactionYears(), List.of(2020, 2021));
+
+        var update = new Transaction.Builder(tr4)
+            .month(2)
+            .build();
+        cache.update(update);
+        assertRecords(cache.getTransactions(2, 2021), update);
+        assertTrue(cache.getTransactions(3, 2021).isEmpty());
+
+        cache.remove(tr1);
+        assertEquals(cache.getTransactionYears(), List.of(2021));
+    }
+
+    @Test
+    public void testTransactionRange() {
+        var cache = new DataCache();
+
+        var tr1 = newTransactionOn(LocalDate.of(2021, 1, 1));
+        var tr2 = newTransactionOn(LocalDate.of(2021, 2, 1));
+        cache.getTransactions().addAll(tr1, tr2);
+
+        var range = new TransactionRange(cache);
+        assertRecords(range.getTransactions(), tr1, tr2);
+
+        range.setRange(LocalDate.of(2021, 1, 1), LocalDate.of(2021, 1, 31));
+        assertRecords(range.getTransactions(), tr1);
+
+        // Cache changes are followed within the range only
+        var tr3 = newTransactionOn(LocalDate.of(2021, 1, 15));
+        cache.add(tr3);
+        cache.add(newTransactionOn(LocalDate.of(2021, 3, 1)));
+        assertRecords(range.getTransactions(), tr1, tr3);
+
+        var update = new Transaction.Builder(tr1)
+            .month(2)
+            .build();
+        cache.update(update);
+        assertRecords(range.getTransactions(), tr3);
+
+        cache.getTransactions().setAll(tr1, tr2);
+        assertRecords(range.getTransactions(), tr1);
+
+        cache.clear();
+        assertTrue(range.getTransactions().isEmpty());
+    }
+
+    @Test
+    public void testTransactionWindow() {
+        var cache = new DataCache();
+
+        var stored = new HashMap<Integer, List<Transaction>>();
+        for (int year = 2016; year <= 2021; year++) {
+            stored.put(year, List.of(newTransactionOn(LocalDate.of(year, 6, 1))));
+        }
+        var loads = new ArrayList<Integer>();
+
+        var window = new TransactionWindow(cache, stored.keySet(), loader(stored, loads), 2020, 2);
+        cache.setTransactionWindow(window);
+        cache.getTransactions().setAll(stored.get(2020));
+        cache.add(stored.get(2021).get(0));
+
+        // Resident years are not loaded
+        assertRecords(cache.getTransactions(LocalDate.of(2020, 1, 1), null), stored.get(2020).get(0),
+            stored.get(2021).get(0));
+        assertTrue(loads.isEmpty());
+        assertEquals(cache.getTransactionYears(), List.of(2016, 2017, 2018, 2019, 2020, 2021));
+
+        // Older years are loaded on demand once
+        assertRecords(cache.getTransactions(LocalDate.of(2018, 1, 1), LocalDate.of(2019, 12, 31)),
+            stored.get(2018).get(0), stored.get(2019).get(0));
+        assertRecords(cache.getTransactions(6, 2019), stored.get(2019).get(0));
+        assertEquals(loads, List.of(2018, 2019));
+        assertEquals(cache.getTransactions().size(), 4);
+
+        // Least recently used year is evicted
+        assertRecords(cache.getTransactions(LocalDate.of(2017, 1, 1), LocalDate.of(2017, 12, 31)),
+            stored.get(2017).get(0));
+        assertEquals(loads, List.of(2018, 2019, 2017));
+        assertTrue(cache.getTransaction(stored.get(2018).get(0).uuid()).isEmpty());
+        assertTrue(window.isResident(2019));
+        assertTrue(window.isResident(2017));
+        assertEquals(cache.getTransactions().size(), 4);
+
+        // Requested years are kept even if limit is exceeded
+        assertEquals(cache.getTransactions(null, null).size(), 6);
+        assertEquals(loads, List.of(2018, 2019, 2017, 2016, 2018));
+    }
+
+    @Test
+    public void testTransactionWindowHistoryQueries() {
+        var cache = new DataCache();
+
+        var parent = new Transaction.Builder(newTransactionOn(LocalDate.of(2020, 6, 1)))
+            .detailed(true)
+            .build();
+        var detail = new Transaction.Builder(newTransactionOn(LocalDate.of(2020, 6, 1)))
+            .parentUuid(parent.uuid())
+            .build();
+        var oldParent = new Transaction.Builder(newTransactionOn(LocalDate.of(2019, 6, 1)))
+            .detailed(true)
+            .build();
+        var oldDetail = new Transaction.Builder(newTransactionOn(LocalDate.of(2019, 6, 1)))
+            .parentUuid(oldParent.uuid())
+            .build();
+        var old = newTransactionOn(LocalDate.of(2018, 6, 1));
+        var stored = Map.of(2018, List.of(old), 2019, List.of(oldParent, oldDetail), 2020, List.of(parent, detail));
+        var loads = new ArrayList<Integer>();
+
+        cache.setTransactionWindow(new TransactionWindow(cache, stored.keySet(), loader(stored, loads), 2020, 0));
+        cache.getTransactions().setAll(parent, detail);
+
+        // Account and parent queries see the whole history without making it resident
+        assertEquals(cache.getTransactionCount(acc1), 5);
+        assertRecords(cache.getTransactions(acc2), old, oldParent, oldDetail, parent, detail);
+        assertRecords(cache.getTransactionDetails(parent), detail);
+        assertRecords(cache.getTransactionDetails(oldParent), oldDetail);
+        assertEquals(cache.getTransactionCount(acc3), 0);
+        assertTrue(loads.isEmpty());
+        assertEquals(cache.getTransactions(), List.of(parent, detail));
+    }
+
+    @Test
+    public void testTransactionWindowKeepsRangeYears() {
+        var cache = new DataCache();
+
+        var stored = new HashMap<Integer, List<Transaction>>();
+        for (int year = 2017; year <= 2020; year++) {
+            stored.put(year, List.of(newTransactionOn(LocalDate.of(year, 6, 1))));
+        }
+        var loads = new ArrayList<Integer>();
+
+        cache.setTransactionWindow(new TransactionWindow(cache, stored.keySet(), loader(stored, loads), 2020, 1));
+        cache.getTransactions().setAll(stored.get(2020));
+
+        var range = new TransactionRange(cache);
+        range.setRange(LocalDate.of(2018, 1, 1), LocalDate.of(2018, 12, 31));
+        assertTrue(range.getTransactions().isEmpty());
+
+        // Range follows the cache when its year is loaded
+        cache.getTransactions(LocalDate.of(2018, 1, 1), LocalDate.of(2018, 12, 31));
+        assertRecords(range.getTransactions(), stored.get(2018).get(0));
+
+        // Year shown by the range is not evicted even if limit is exceeded
+        assertRecords(cache.getTransactions(LocalDate.of(2017, 1, 1), LocalDate.of(2017, 12, 31)),
+            stored.get(2017).get(0));
+        assertRecords(range.getTransactions(), stored.get(2018).get(0));
+        assertTrue(cache.getTransaction(stored.get(2018).get(0).uuid()).isPresent());
+
+        // Once the range moves away its former year can be evicted
+        range.setRange(LocalDate.of(2020, 1, 1), null);
+        assertRecords(cache.getTransactions(LocalDate.of(2019, 1, 1), LocalDate.of(2019, 12, 31)),
+            stored.get(2019).get(0));
+        assertTrue(cache.getTransaction(stored.get(2017).get(0).uuid()).isEmpty());
+        assertTrue(cache.getTransaction(stored.get(2018).get(0).uuid()).isEmpty());
+        assertEquals(loads, List.of(2018, 2017, 2019));
+    }
+
+    @Test
+    public void testTransactionWindowAddYears() {
+        var cache = new DataCache();
+
+        var stored = new HashMap<Integer, List<Transaction>>();
+        for (int year = 2017; year <= 2020; year++) {
+            stored.put(year, List.of(newTransactionOn(LocalDate.of(year, 6, 1))));
+        }
+        var loads = new ArrayList<Integer>();
+
+        var window = new TransactionWindow(cache, stored.keySet(), loader(stored, loads), 2020, 1);
+        cache.setTransactionWindow(window);
+        cache.getTransactions().setAll(stored.get(2020));
+
+        var from = (int) LocalDate.of(2017, 1, 1).toEpochDay();
+        var to = (int) LocalDate.of(2020, 12, 31).toEpochDay();
+        assertEquals(window.getMissingYears(from, to), List.of(2017, 2018, 2019));
+
+        // Year loaded synchronously while reading in background is not replaced by the stale copy
+        cache.getTransactions(6, 2018);
+        var stale = newTransactionOn(LocalDate.of(2018, 7, 1));
+        window.addYears(Map.of(2017, stored.get(2017), 2018, List.of(stale)));
+
+        assertRecords(cache.getTransactions(), stored.get(2017).get(0), stored.get(2018).get(0),
+            stored.get(2020).get(0));
+        assertEquals(window.getMissingYears(from, to), List.of(2019));
+        assertEquals(loads, List.of(2018));
+    }
+
+    private static TransactionWindow.Loader loader(Map<Integer, List<Transaction>> stored, List<Integer> loads) {
+        return new TransactionWindow.Loader() {
+            @Override
+            public List<Transaction> getByYear(int year) {
+                loads.add(year);
+                return stored.get(year);
+            }
+
+            @Override
+            public List<Transaction> getByAccount(UUID accountUuid) {
+                return stored.values().stream()
+                    .flatMap(List::stream)
+                    .filter(t -> t.accountDebitedUuid().equals(accountUuid)
+                        || t.accountCreditedUuid().equals(accountUuid))
+                    .toList();
+            }
+
+            @Override
+            public long countByAccount(UUID accountUuid) {
+                return getByAccount(accountUuid).size();
+            }
+
+            @Override
+            public List<Transaction> getByParent(UUID parentUuid) {
+                return stored.values().stream()
+                    .flatMap(List::stream)
+                    .filter(t -> parentUuid.equals(t.parentUuid()))
+                    .toList();
+            }
+        };
+    }
+
+    @Test
+    public void testMerge() {
+        var cache = new DataCache();
+        var tr1 = newTransactionOn(LocalDate.of(2021, 6, 1));
+        var tr2 = newTransactionOn(LocalDate.of(2018, 6, 1));
+        cache.getAccounts().addAll(acc1, acc2);
+        cache.getTransactions().addAll(tr1, tr2);
+
+        var updatedAccount = new Account.Builder(acc2).comment("updated").build();
+        var updated = new Transaction.Builder(tr1).comment("updated").build();
+        var added = newTransactionOn(LocalDate.of(2021, 7, 1));
+        cache.merge(List.of(), List.of(), List.of(), List.of(), List.of(updatedAccount, acc3),
+            List.of(updated, added));
+
+        assertEquals(cache.getAccounts(), List.of(acc1, updatedAccount, acc3));
+        assertEquals(cache.getTransactions(), List.of(updated, tr2, added));
+        assertEquals(cache.getTransaction(updated.uuid()).orElseThrow(), updated);
+        assertRecords(cache.getTransactions(7, 2021), added);
+
+        // Transactions outside of the resident window are not cached
+        var window = new TransactionWindow(cache, List.of(2018, 2021), loader(Map.of(), new ArrayList<>()), 2020, 1);
+        cache.setTransactionWindow(window);
+        var moved = new Transaction.Builder(tr1).year(2015).build();
+        cache.merge(List.of(), List.of(), List.of(), List.of(), List.of(), List.of(moved));
+
+        assertRecords(cache.getTransactions(), tr2, added);
+        assertEquals(cache.getTransactionYears(), List.of(2015, 2018, 2021));
+    }
+
+    @Test
+    public void testMergeEqual() {
+        var cache = new DataCache();
+        cache.getAccounts().addAll(acc1, acc2);
+
+        var changes = new ArrayList<Integer>();
+        cache.getAccounts().addListener((ListChangeListener<Account>) c -> changes.add(c.getList().size()));
+
+        // Equal records are not replaced
+        cache.merge(List.of(), List.of(), List.of(), List.of(), List.of(acc1, acc2), List.of());
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    public void testRemoveAll() {
+        var cache = new DataCache();
+        var tr1 = newTransaction(acc1, acc2);
+        var tr2 = newTransaction(acc2, acc3);
+        cache.getAccounts().addAll(acc1, acc2, acc3);
+        cache.getTransactions().addAll(tr1, tr2);
+
+        cache.removeAll(Set.of(acc2.uuid(), tr1.uuid(), UUID.randomUUID()));
+
+        assertEquals(cache.getAccounts(), List.of(acc1, acc3));
+        assertEquals(cache.getTransactions(), List.of(tr2));
+        assertTrue(cache.getAccount(acc2.uuid()).isEmpty());
+        assertTrue(cache.getTransaction(tr1.uuid()).isEmpty());
+        assertTrue(cache.getTransactions(acc1).isEmpty());
+        assertRecords(cache.getTransactions(acc3), tr2);
+    }
+
+    @Test
+    public void testCalculateBalances() {
+        var cache = new DataCache();
+        var acc4 = newAccount(cat2, currency);
+        cache.getAccounts().addAll(acc1, acc2, acc3, acc4);
+
+        var parent = new Transaction.Builder(newTransaction(acc1, acc2))
+            .detailed(true)
+            .build();
+        var detail = new Transaction.Builder(newTransaction(acc1, acc2))
+            .parentUuid(parent.uuid())
+            .build();
+        var converted = new Transaction.Builder(newTransaction(acc2, acc3))
+            .rate(new BigDecimal("2"))
+            .rateDirection(1)
+            .build();
+        cache.getTransactions().addAll(parent, detail, converted, newTransaction(acc1, acc3),
+            newTransaction(acc3, acc3), newTransaction(acc2, acc1));
+
+        for (var parallel : List.of(false, true)) {
+            var balances = cache.calculateBalances(parallel);
+            assertEquals(balances.size(), 4);
+            for (var account : List.of(acc1, acc2, acc3, acc4)) {
+                var balance = balances.get(account.uuid());
+                assertEquals(balance.total().compareTo(cache.calculateBalance(account, false, t -> true)), 0);
+                assertEquals(balance.waiting().compareTo(cache.calculateBalance(account, false, t -> !t.checked())),
+                    0);
+            }
+            assertEquals(balances.get(acc4.uuid()), DataCache.Balance.ZERO);
+        }
+    }
+
+    @Test
+    public void testAccountNumberIndex() {
+        var cache = new DataCache();
+
+        var account = new Account.Builder(acc1)
+            .accountNumber("4081 7810 0000")
+            .cardNumber("5555 4444 3333 2222")
+            .enabled(true)
+            .build();
+        var disabled = new Account.Builder(acc2)
+            .accountNumber("1234")
+            .enabled(false)
+            .build();
+        cache.getAccounts().addAll(account, disabled);
+
+        assertEquals(cache.getAccountByNumber("408178100000").orElseThrow(), account);
+        assertEquals(cache.getAccountByNumber("4081 78100000").orElseThrow(), account);
+        assertEquals(cache.getAccountByNumber("5555444433332222").orElseThrow(), account);
+        assertTrue(cache.getAccountByNumber("1234").isEmpty());
+        assertTrue(cache.getAccountByNumber("").isEmpty());
+
+        var update = new Account.Builder(account)
+            .cardNumber("1111 2222")
+            .build();
+        cache.update(update);
+        assertTrue(cache.getAccountByNumber("5555444433332222").isEmpty());
+        assertEquals(cache.getAccountByNumber("11112222").orElseThrow(), update);
+
+        cache.update(disabled.enable(true));
+        assertEquals(cache.getAccountByNumber("1234").orElseThrow().uuid(), disabled.uuid());
+
+        cache.remove(update);
+        assertTrue(cache.getAccountByNumber("408178100000").isEmpty());
+    }
+
+    @Test
+    public void testCategoryAndAccountTypeIndexes() {
+        var cache = new DataCache();
+
+        var banks = newCategory(UUID.randomUUID(), CategoryType.BANKS_AND_CASH);
+        var debts = newCategory(UUID.randomUUID(), CategoryType.DEBTS);
+        var expenses = newCategory(UUID.randomUUID(), CategoryType.EXPENSES);
+        cache.getCategories().addAll(banks, debts, expenses);
+
+        var bank1 = newAccount(banks, currency);
+        var bank2 = newAccount(banks, currency);
+        var debt = newAccount(debts, currency);
+        cache.getAccounts().addAll(bank1, bank2, debt);
+
+        assertRecords(cache.getCategoriesByType(CategoryType.DEBTS, CategoryType.EXPENSES), debts, expenses);
+        assertRecords(cache.getCategoriesByType(EnumSet.of(CategoryType.BANKS_AND_CASH)), banks);
+        assertTrue(cache.getCategoriesByType(CategoryType.INCOMES).isEmpty());
+        assertEquals(cache.getAccountsByType(CategoryType.BANKS_AND_CASH), List.of(bank1, bank2));
+        assertEquals(cache.getAccountsByCategory(banks.uuid()), List.of(bank1, bank2));
+        assertRecords(cache.getAccountsByCategoryId(banks.uuid(), debts.uuid()), bank1, bank2, debt);
+
+        // Update keeps order of unchanged keys
+        var bank1Update = new Account.Builder(bank1)
+            .name(UUID.randomUUID().toString())
+            .build();
+        cache.update(bank1Update);
+        assertEquals(cache.getAccountsByCategory(banks.uuid()), List.of(bank1Update, bank2));
+
+        // Moving account to another category
+        var debtUpdate = new Account.Builder(debt)
+            .type(CategoryType.BANKS_AND_CASH)
+            .categoryUuid(banks.uuid())
+            .build();
+        cache.update(debtUpdate);
+        assertTrue(cache.getAccountsByCategory(debts.uuid()).isEmpty());
+        assertEquals(cache.getAccountsByType(CategoryType.BANKS_AND_CASH), List.of(bank1Update, bank2, debtUpdate));
+
+        var expensesUpdate = new Category.Builder(expenses)
+            .type(CategoryType.INCOMES)
+            .build();
+        cache.update(expensesUpdate);
+        assertRecords(cache.getCategoriesByType(CategoryType.INCOMES), expensesUpdate);
+        assertTrue(cache.getCategoriesByType(CategoryType.EXPENSES).isEmpty());
+
+        cache.remove(bank2);
+        assertEquals(cache.getAccountsByCategory(banks.uuid()), List.of(bank1Update, debtUpdate));
+    }
+}
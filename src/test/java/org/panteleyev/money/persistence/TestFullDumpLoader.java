@@ -0,0 +1,220 @@
+/*
+ Copyright (c) Petr Panteleyev. All rights reserved.
+ Licensed under the BSD license. See LICENSE file in the project root for full license information.
+ */
+package org.panteleyev.money.persistence;
+
+import org.panteleyev.money.model.MoneyRecord;
+import org.panteleyev.money.model.Transaction;
+import org.testng.annotations.Test;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import static org.panteleyev.money.test.BaseTestUtils.newAccount;
+import static org.panteleyev.money.test.BaseTestUtils.newCategory;
+import static org.panteleyev.money.test.BaseTestUtils.newContact;
+import static org.panteleyev.money.test.BaseTestUtils.newCurrency;
+import static org.panteleyev.money.test.BaseTestUtils.newTransaction;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+public class TestFullDumpLoader {
+    private static final int BATCH_SIZE = 2;
+
+    /**
+     * Records inserted batches in order.
+     */
+    private static final class RecordingRepository<T extends MoneyRecord> extends Repository<T> {
+        private final List<List<MoneyRecord>> batches;
+
+        RecordingRepository(String tableName, List<List<MoneyRecord>> batches) {
+            super(tableName, new FakeDataSource());
+            this.batches = batches;
+        }
+
+        @Override
+        public void insert(Connection conn, int batchSize, List<T> records) {
+            assertTrue(records.size() <= batchSize);
+            if (!records.isEmpty()) {
+                batches.add(List.copyOf(records));
+            }
+        }
+
+        @Override
+        protected T fromResultSet(ResultSet rs) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void toStatement(PreparedStatement st, T object, boolean update) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected String getInsertSql() {
+            return "";
+        }
+
+        @Override
+        protected String getUpdateSql() {
+            return "";
+        }
+
+        @Override
+        protected String getColumns() {
+            return "";
+        }
+    }
+
+    private final List<List<MoneyRecord>> batches = new ArrayList<>();
+
+    private FullDumpLoader newLoader() {
+        batches.clear();
+        return new FullDumpLoader(null, BATCH_SIZE,
+            new RecordingRepository<>("icon", batches),
+            new RecordingRepository<>("category", batches),
+            new RecordingRepository<>("currency", batches),
+            new RecordingRepository<>("contact", batches),
+            new RecordingRepository<>("account", batches),
+            new RecordingRepository<>("transaction", batches));
+    }
+
+    @Test
+    public void testOrder() {
+        var category = newCategory();
+        var currency = newCurrency();
+        var contact = newContact();
+        var account = newAccount(category, currency);
+
+        var parent = new Transaction.Builder(newTransaction(account, account, contact))
+            .detailed(true)
+            .build();
+        var detail1 = new Transaction.Builder(newTransaction(account, account, contact))
+            .parentUuid(parent.uuid())
+            .build();
+        var detail2 = new Transaction.Builder(newTransaction(account, account, contact))
+            .parentUuid(parent.uuid())
+            .build();
+        var t1 = newTransaction(account, account, contact);
+        var t2 = newTransaction(account, account, contact);
+
+        var loader = newLoader();
+        // Export order: accounts precede categories and currencies, details may precede parents
+        for (var record : List.<MoneyRecord>of(account, category, contact, currency, detail1, t1, parent, detail2, t2)) {
+            loader.accept(record);
+        }
+        loader.finish();
+
+        assertEquals(loader.getCount(), 9);
+        assertEquals(batches, List.of(
+            List.of(category),
+            List.of(currency),
+            List.of(contact),
+            List.of(account),
+            List.of(t1, parent),
+            List.of(detail1, detail2),
+            List.of(t2)
+        ));
+    }
+
+    @Test
+    public void testOrphanDetails() {
+        var category = newCategory();
+        var currency = newCurrency();
+        var account = newAccount(category, currency);
+        var orphan = new Transaction.Builder(newTransaction(account, account))
+            .parentUuid(newTransaction(account, account).uuid())
+            .build();
+
+        var loader = newLoader();
+        for (var record : List.<MoneyRecord>of(category, currency, account, orphan)) {
+            loader.accept(record);
+        }
+        assertThrows(IllegalStateException.class, loader::finish);
+        assertEquals(batches, List.of(List.of(category), List.of(currency), List.of(account)));
+    }
+
+    @Test
+    public void testNestedDetails() {
+        var category = newCategory();
+        var currency = newCurrency();
+        var account = newAccount(category, currency);
+
+        var parent = newTransaction(account, account);
+        var detail = new Transaction.Builder(newTransaction(account, account))
+            .parentUuid(parent.uuid())
+            .build();
+        var nested = new Transaction.Builder(newTransaction(account, account))
+            .parentUuid(detail.uuid())
+            .build();
+        // Transaction may reference itself
+        var self = newTransaction(account, account);
+        self = new Transaction.Builder(self).parentUuid(self.uuid()).build();
+
+        var loader = newLoader();
+        for (var record : List.<MoneyRecord>of(category, currency, account, nested, detail, self, parent)) {
+            loader.accept(record);
+        }
+        loader.finish();
+
+        assertEquals(batches.subList(3, batches.size()), List.of(List.of(self, parent), List.of(detail, nested)));
+    }
+
+    @Test
+    public void testMissingReferences() {
+        var category = newCategory();
+        var currency = newCurrency();
+        var account = newAccount(category, currency);
+
+        // Transaction account
+        var loader = newLoader();
+        loader.accept(category);
+        loader.accept(currency);
+        loader.accept(account);
+        assertThrows(IllegalStateException.class,
+            () -> loader.accept(newTransaction(account, newAccount(category, currency))));
+
+        // Account currency
+        var validator = FullDumpLoader.validator(BATCH_SIZE);
+        validator.accept(category);
+        validator.accept(account);
+        assertThrows(IllegalStateException.class, validator::finish);
+    }
+
+    @Test
+    public void testValidator() {
+        var category = newCategory();
+        var currency = newCurrency();
+        var account = newAccount(category, currency);
+
+        // Validator has no repositories
+        var validator = FullDumpLoader.validator(BATCH_SIZE);
+        for (var record : List.<MoneyRecord>of(category, currency, account, newTransaction(account, account),
+            newTransaction(account, account), newTransaction(account, account)))
+        {
+            validator.accept(record);
+        }
+        validator.finish();
+        assertEquals(validator.getCount(), 6);
+
+        assertThrows(IllegalStateException.class, () -> validator.accept(newCategory()));
+    }
+
+    @Test
+    public void testReferencesAfterTransactions() {
+        var category = newCategory();
+        var currency = newCurrency();
+
+        var account = newAccount(category, currency);
+
+        var loader = newLoader();
+        loader.accept(category);
+        loader.accept(currency);
+        loader.accept(account);
+        loader.accept(newTransaction(account, account));
+        assertThrows(IllegalStateException.class, () -> loader.accept(newCategory()));
+    }
+}
@@ -4,6 +4,8 @@
  */
 package org.panteleyev.money.persistence;
 
+import javafx.application.Platform;
+import org.h2.jdbcx.JdbcDataSource;
 import org.panteleyev.money.model.Account;
 import org.panteleyev.money.model.Category;
 import org.panteleyev.money.model.CategoryType;
@@ -12,12 +14,25 @@ import org.panteleyev.money.test.BaseTestUtils;
 import org.testng.SkipException;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
 import static org.panteleyev.money.persistence.DataCache.cache;
+import static org.panteleyev.money.persistence.MoneyDAO.IGNORE_PROGRESS;
 import static org.panteleyev.money.persistence.MoneyDAO.getDao;
+import static org.panteleyev.money.test.BaseTestUtils.newAccount;
+import static org.panteleyev.money.test.BaseTestUtils.newCategory;
+import static org.panteleyev.money.test.BaseTestUtils.newCurrency;
+import static org.panteleyev.money.test.BaseTestUtils.newTransaction;
 import static org.panteleyev.money.test.BaseTestUtils.randomString;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
 
 public class TestMoneyDAO extends BaseDaoTest {
     @BeforeClass
@@ -207,4 +222,321 @@ public class TestMoneyDAO extends BaseDaoTest {
         retrieved = repo.get(id);
         assertEquals(retrieved.orElseThrow(), update);
     }
+
+    @Test
+    public void testIncrementalAccountBalance() {
+        var fixture = insertFixture();
+        var debited = fixture.debited();
+        var credited = fixture.credited();
+
+        var t1 = fixture.transaction();
+        getDao().insertTransaction(t1);
+
+        var t2 = new Transaction.Builder(t1)
+            .uuid(UUID.randomUUID())
+            .amount(new BigDecimal("30"))
+            .rate(new BigDecimal("2"))
+            .rateDirection(1)
+            .checked(true)
+            .build();
+        getDao().insertTransaction(t2);
+
+        assertBalance(debited.uuid(), "-130", "-100");
+        assertBalance(credited.uuid(), "160", "100");
+
+        getDao().updateTransaction(new Transaction.Builder(t1).amount(new BigDecimal("50")).checked(true).build());
+        assertBalance(debited.uuid(), "-80", "0");
+        assertBalance(credited.uuid(), "110", "0");
+
+        getDao().deleteTransaction(t2);
+        assertBalance(debited.uuid(), "-50", "0");
+        assertBalance(credited.uuid(), "50", "0");
+    }
+
+    @Test
+    public void testAsyncAccountBalance() {
+        var fixture = newFixture();
+        var debited = fixture.debited();
+        var credited = fixture.credited();
+        getDao().insertCategoryAsync(fixture.category());
+        getDao().insertAccountAsync(debited);
+        getDao().insertAccountAsync(credited);
+
+        var t1 = fixture.transaction();
+        var t2 = new Transaction.Builder(t1)
+            .uuid(UUID.randomUUID())
+            .amount(new BigDecimal("30"))
+            .checked(true)
+            .build();
+
+        // Operations are not awaited, each one must observe changes of the previous ones
+        getDao().insertTransactionAsync(t1);
+        getDao().insertTransactionAsync(t2);
+        getDao().updateTransactionAsync(new Transaction.Builder(t1).amount(new BigDecimal("50")).build());
+        getDao().deleteTransactionAsync(t2).join();
+
+        assertBalance(debited.uuid(), "-50", "-50");
+        assertBalance(credited.uuid(), "50", "50");
+        assertTrue(getDao().getAllTransactionsAsync().join().stream()
+            .noneMatch(t -> t.uuid().equals(t2.uuid())));
+    }
+
+    @Test
+    public void testAsyncAccountBalanceWithSynchronousChange() throws Exception {
+        var fixture = insertFixture();
+        var debited = fixture.debited();
+        var credited = fixture.credited();
+
+        var t1 = fixture.transaction();
+        var t2 = new Transaction.Builder(t1)
+            .uuid(UUID.randomUUID())
+            .amount(new BigDecimal("30"))
+            .checked(true)
+            .build();
+
+        // Synchronous change runs on the FX thread after the prepare step and before the apply step
+        var insert = getDao().insertTransactionAsync(t1);
+        var latch = new CountDownLatch(1);
+        Platform.runLater(() -> {
+            getDao().insertTransaction(t2);
+            latch.countDown();
+        });
+        latch.await();
+        insert.join();
+        assertBalance(debited.uuid(), "-130", "-100");
+        assertBalance(credited.uuid(), "130", "100");
+
+        // Transaction is inserted after the new contact
+        var contactName = randomString();
+        var t3 = getDao().insertTransactionAsync(new Transaction.Builder(t2)
+            .uuid(UUID.randomUUID())
+            .newContactName(contactName)).join();
+        var contact = cache().getContact(t3.contactUuid()).orElseThrow();
+        assertEquals(contact.name(), contactName);
+        assertEquals(getDao().getTransactionRepository().get(t3.uuid()).orElseThrow(), t3);
+        assertBalance(debited.uuid(), "-160", "-100");
+        assertBalance(credited.uuid(), "160", "100");
+    }
+
+    @Test
+    public void testUpdateBalances() {
+        var fixture = insertFixture();
+        var debited = fixture.debited();
+        var credited = fixture.credited();
+        getDao().insertTransaction(fixture.transaction());
+
+        // Break stored values and restore them from transactions
+        getDao().updateAccount(cache().getAccount(debited.uuid()).orElseThrow()
+            .updateBalance(BigDecimal.ONE, BigDecimal.ONE));
+        getDao().updateAccount(cache().getAccount(credited.uuid()).orElseThrow()
+            .updateBalance(BigDecimal.ZERO, BigDecimal.ZERO));
+
+        getDao().updateBalances(cache().calculateBalances(true));
+        assertBalance(debited.uuid(), "-100", "-100");
+        assertBalance(credited.uuid(), "100", "100");
+    }
+
+    @Test
+    public void testReconcileBalances() throws Exception {
+        var category = newCategory();
+        var currency = newCurrency();
+        getDao().insertCategory(category);
+        getDao().insertCurrency(currency);
+
+        var debited = newAccount(category, currency);
+        var credited = newAccount(category, currency);
+        getDao().insertAccount(debited);
+        getDao().insertAccount(credited);
+
+        // Converted amount has more digits than the column
+        var transaction = new Transaction.Builder(newTransaction(debited, credited, null))
+            .amount(new BigDecimal("10.123456"))
+            .rate(new BigDecimal("1.234567"))
+            .rateDirection(1)
+            .checked(false)
+            .build();
+        getDao().insertTransaction(transaction);
+        var converted = transaction.amount().multiply(transaction.rate())
+            .setScale(MoneyDAO.FIELD_SCALE, RoundingMode.HALF_UP);
+
+        var repaired = getDao().reconcileBalances().join();
+        assertTrue(repaired.stream().noneMatch(a -> a.uuid().equals(debited.uuid())
+            || a.uuid().equals(credited.uuid())));
+
+        // Break stored values, then change the same account while reconciliation is running
+        getDao().updateAccount(cache().getAccount(credited.uuid()).orElseThrow()
+            .updateBalance(BigDecimal.ONE, BigDecimal.ONE));
+
+        var fxBlocked = new CountDownLatch(1);
+        var fxRelease = new CountDownLatch(1);
+        Platform.runLater(() -> {
+            fxBlocked.countDown();
+            try {
+                fxRelease.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        fxBlocked.await();
+
+        var future = getDao().reconcileBalances();
+        getDao().insertTransaction(new Transaction.Builder(transaction)
+            .uuid(UUID.randomUUID())
+            .amount(BigDecimal.TEN)
+            .rate(BigDecimal.ONE)
+            .checked(true)
+            .build());
+        fxRelease.countDown();
+        future.join();
+
+        var total = converted.add(BigDecimal.TEN);
+        assertBalance(debited.uuid(), "-20.123456", "-10.123456");
+        assertBalance(credited.uuid(), total.toPlainString(), converted.toPlainString());
+
+        // Only specified accounts are repaired
+        getDao().updateAccount(cache().getAccount(credited.uuid()).orElseThrow()
+            .updateBalance(BigDecimal.ONE, BigDecimal.ONE));
+        assertTrue(getDao().reconcileBalances(List.of(debited.uuid())).join().isEmpty());
+        assertEquals(cache().getAccount(credited.uuid()).orElseThrow().total().compareTo(BigDecimal.ONE), 0);
+        assertEquals(getDao().reconcileBalances(List.of(credited.uuid())).join().size(), 1);
+        assertBalance(credited.uuid(), total.toPlainString(), converted.toPlainString());
+    }
+
+    @Test
+    public void testRefresh() throws Exception {
+        var category = newCategory();
+        var currency = newCurrency();
+        getDao().insertCategory(category);
+        getDao().insertCurrency(currency);
+
+        // Records of another client with the clock far ahead must not move the high water mark
+        var highWaterMark = getDao().refreshSince(System.currentTimeMillis());
+        var ahead = new Account.Builder(newAccount(category, currency))
+            .modified(System.currentTimeMillis() + Duration.ofHours(1).toMillis())
+            .build();
+        getDao().getAccountRepository().insert(ahead);
+        highWaterMark = getDao().refreshSince(highWaterMark);
+        assertTrue(highWaterMark < ahead.modified());
+
+        var account = newAccount(category, currency);
+        getDao().getAccountRepository().insert(account);
+        highWaterMark = getDao().refreshSince(highWaterMark);
+        waitForFx();
+        assertTrue(cache().getAccount(ahead.uuid()).isPresent());
+        assertTrue(cache().getAccount(account.uuid()).isPresent());
+
+        // Record deleted locally while refresh is in progress is not restored
+        var deleted = newAccount(category, currency);
+        getDao().getAccountRepository().insert(deleted);
+
+        var fxRelease = new CountDownLatch(1);
+        Platform.runLater(() -> {
+            try {
+                fxRelease.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        getDao().refreshSince(highWaterMark);
+        getDao().deleteAccount(deleted);
+        fxRelease.countDown();
+        waitForFx();
+        assertTrue(cache().getAccount(deleted.uuid()).isEmpty());
+    }
+
+    @Test(dependsOnMethods = {"testIcon", "testCategory", "testCurrency", "testContact", "testAccount",
+        "testTransaction"})
+    public void testCopyDatabase() {
+        var source = getDao().getTransactionRepository().getDataSource();
+        var target = new JdbcDataSource();
+        target.setURL("jdbc:h2:mem:copy;DB_CLOSE_DELAY=-1");
+
+        getDao().copyDatabaseAsync(source, target, IGNORE_PROGRESS).join();
+
+        assertEquals(Set.copyOf(new IconRepository(target).getAll()), Set.copyOf(new IconRepository(source).getAll()));
+        assertEquals(Set.copyOf(new CategoryRepository(target).getAll()),
+            Set.copyOf(new CategoryRepository(source).getAll()));
+        assertEquals(Set.copyOf(new CurrencyRepository(target).getAll()),
+            Set.copyOf(new CurrencyRepository(source).getAll()));
+        assertEquals(Set.copyOf(new ContactRepository(target).getAll()),
+            Set.copyOf(new ContactRepository(source).getAll()));
+        assertEquals(Set.copyOf(new AccountRepository(target).getAll()),
+            Set.copyOf(new AccountRepository(source).getAll()));
+        assertEquals(Set.copyOf(new TransactionRepository(target).getAll()),
+            Set.copyOf(new TransactionRepository(source).getAll()));
+
+        // Tables of the source and of the open database are never dropped
+        var sameTarget = new JdbcDataSource();
+        sameTarget.setURL("jdbc:h2:mem:copy;DB_CLOSE_DELAY=-1");
+        assertThrows(IllegalArgumentException.class, () -> MoneyDAO.copyDatabase(target, sameTarget, IGNORE_PROGRESS));
+        assertThrows(IllegalArgumentException.class, () -> MoneyDAO.copyDatabase(target, source, IGNORE_PROGRESS));
+        assertEquals(Set.copyOf(new TransactionRepository(source).getAll()),
+            Set.copyOf(new TransactionRepository(target).getAll()));
+    }
+
+    /**
+     * Category with two accounts and an unchecked transaction of 100 between them. Records are not inserted.
+     */
+    private record Fixture(Category category, Account debited, Account credited, Transaction transaction) {
+    }
+
+    private static Fixture newFixture() {
+        var category = new Category.Builder()
+            .name(randomString())
+            .type(CategoryType.BANKS_AND_CASH)
+            .uuid(UUID.randomUUID())
+            .build();
+
+        var debited = new Account.Builder()
+            .uuid(UUID.randomUUID())
+            .name(randomString())
+            .type(category.type())
+            .categoryUuid(category.uuid())
+            .build();
+
+        var credited = new Account.Builder(debited)
+            .uuid(UUID.randomUUID())
+            .name(randomString())
+            .build();
+
+        var now = LocalDate.now();
+        var transaction = new Transaction.Builder()
+            .uuid(UUID.randomUUID())
+            .day(now.getDayOfMonth())
+            .month(now.getMonthValue())
+            .year(now.getYear())
+            .amount(new BigDecimal("100"))
+            .accountDebitedUuid(debited.uuid())
+            .accountCreditedUuid(credited.uuid())
+            .accountDebitedCategoryUuid(category.uuid())
+            .accountCreditedCategoryUuid(category.uuid())
+            .accountDebitedType(debited.type())
+            .accountCreditedType(credited.type())
+            .build();
+
+        return new Fixture(category, debited, credited, transaction);
+    }
+
+    // Category and accounts are inserted, transaction is not
+    private static Fixture insertFixture() {
+        var fixture = newFixture();
+        getDao().insertCategory(fixture.category());
+        getDao().insertAccount(fixture.debited());
+        getDao().insertAccount(fixture.credited());
+        return fixture;
+    }
+
+    private static void waitForFx() throws InterruptedException {
+        var latch = new CountDownLatch(1);
+        Platform.runLater(latch::countDown);
+        latch.await();
+    }
+
+    private static void assertBalance(UUID accountUuid, String total, String waiting) {
+        var account = cache().getAccount(accountUuid).orElseThrow();
+        assertEquals(account.total().compareTo(new BigDecimal(total)), 0);
+        assertEquals(account.totalWaiting().compareTo(new BigDecimal(waiting)), 0);
+        assertEquals(account.total().compareTo(cache().calculateBalance(account, false, t -> true)), 0);
+        assertEquals(getDao().getAccountRepository().get(accountUuid).orElseThrow(), account);
+    }
 }
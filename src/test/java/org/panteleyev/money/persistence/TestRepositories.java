@@ -13,10 +13,19 @@ import org.panteleyev.money.model.Transaction;
 import org.testng.SkipException;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import static org.panteleyev.money.persistence.MoneyDAO.getDao;
+import static org.panteleyev.money.test.BaseTestUtils.newAccount;
+import static org.panteleyev.money.test.BaseTestUtils.newCategory;
+import static org.panteleyev.money.test.BaseTestUtils.newCurrency;
 import static org.panteleyev.money.test.BaseTestUtils.newIcon;
+import static org.panteleyev.money.test.BaseTestUtils.newTransaction;
 import static org.panteleyev.money.test.BaseTestUtils.randomBigDecimal;
 import static org.panteleyev.money.test.BaseTestUtils.randomBoolean;
 import static org.panteleyev.money.test.BaseTestUtils.randomCardType;
@@ -29,6 +38,8 @@ import static org.panteleyev.money.test.BaseTestUtils.randomString;
 import static org.panteleyev.money.test.BaseTestUtils.randomTransactionType;
 import static org.panteleyev.money.test.BaseTestUtils.randomYear;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 public class TestRepositories extends BaseDaoTest {
     public static final String ICON_DOLLAR = "dollar.png";
@@ -278,6 +289,151 @@ public class TestRepositories extends BaseDaoTest {
         insertAndUpdate(repository, insert, update);
     }
 
+    @Test
+    public void testTransactionQueries() {
+        var currency = newCurrency();
+        var category = newCategory();
+        var a1 = newAccount(category, currency);
+        var a2 = newAccount(category, currency);
+        var a3 = newAccount(category, currency);
+
+        getDao().getCurrencyRepository().insert(currency);
+        getDao().getCategoryRepository().insert(category);
+        getDao().getAccountRepository().insert(a1);
+        getDao().getAccountRepository().insert(a2);
+        getDao().getAccountRepository().insert(a3);
+
+        var parent = new Transaction.Builder(newTransaction(a1, a2))
+            .year(1801).month(1).day(31)
+            .detailed(true)
+            .build();
+        var child1 = new Transaction.Builder(newTransaction(a1, a3))
+            .year(1801).month(2).day(1)
+            .parentUuid(parent.uuid())
+            .build();
+        var child2 = new Transaction.Builder(newTransaction(a3, a1))
+            .year(1801).month(12).day(31)
+            .parentUuid(parent.uuid())
+            .build();
+        var self = new Transaction.Builder(newTransaction(a3, a3))
+            .year(1802).month(1).day(1)
+            .build();
+
+        var repository = getDao().getTransactionRepository();
+        for (var t : List.of(parent, child1, child2, self)) {
+            repository.insert(t);
+        }
+
+        assertEquals(Set.copyOf(repository.getByAccount(a1.uuid())), Set.of(parent, child1, child2));
+        assertEquals(Set.copyOf(repository.getByAccount(a2.uuid())), Set.of(parent));
+        // Transaction with the same debited and credited account is returned once
+        var byAccount = repository.getByAccount(a3.uuid());
+        assertEquals(byAccount.size(), 3);
+        assertEquals(Set.copyOf(byAccount), Set.of(child1, child2, self));
+
+        assertEquals(Set.copyOf(repository.getByParent(parent.uuid())), Set.of(child1, child2));
+
+        var byDate = repository.getByDateRange(LocalDate.of(1801, 2, 1), LocalDate.of(1801, 12, 31));
+        assertTrue(byDate.containsAll(List.of(child1, child2)));
+        assertFalse(byDate.contains(parent));
+        assertFalse(byDate.contains(self));
+
+        var fromDay = Transaction.toEpochDay(1801, 12, 31);
+        var toDay = Transaction.toEpochDay(1802, 1, 1);
+        var byEpochDay = repository.getByEpochDay(fromDay, toDay);
+        assertTrue(byEpochDay.containsAll(List.of(child2, self)));
+        assertFalse(byEpochDay.contains(child1));
+    }
+
+    @Test
+    public void testTransactionBalances() {
+        var currency = newCurrency();
+        var category = newCategory();
+        var a1 = newAccount(category, currency);
+        var a2 = newAccount(category, currency);
+
+        getDao().getCurrencyRepository().insert(currency);
+        getDao().getCategoryRepository().insert(category);
+        getDao().getAccountRepository().insert(a1);
+        getDao().getAccountRepository().insert(a2);
+
+        var parent = new Transaction.Builder(newTransaction(a1, a2))
+            .detailed(true)
+            .build();
+        var repository = getDao().getTransactionRepository();
+        for (var t : List.of(
+            parent,
+            new Transaction.Builder(newTransaction(a1, a2)).parentUuid(parent.uuid()).build(),
+            new Transaction.Builder(newTransaction(a2, a1)).rate(new BigDecimal("3")).rateDirection(0).build(),
+            new Transaction.Builder(newTransaction(a2, a1)).rate(new BigDecimal("1.5")).rateDirection(1).build(),
+            new Transaction.Builder(newTransaction(a1, a1)).checked(false).build()
+        )) {
+            repository.insert(t);
+        }
+
+        var expected = DataCache.calculateBalances(repository.getAll(), List.of(), false);
+        var actual = repository.getBalances();
+        assertEquals(actual.keySet(), expected.keySet());
+        expected.forEach((uuid, balance) -> {
+            assertEquals(actual.get(uuid).total().compareTo(balance.total()), 0);
+            assertEquals(actual.get(uuid).waiting().compareTo(balance.waiting()), 0);
+        });
+    }
+
+    @Test
+    public void testModifiedSince() {
+        var repository = getDao().getCurrencyRepository();
+        var currency = newCurrency();
+        repository.insert(currency);
+
+        assertTrue(repository.getModifiedSince(currency.modified() - 1).contains(currency));
+        assertTrue(repository.getModifiedSince(currency.modified()).isEmpty());
+
+        var since = System.currentTimeMillis() - 1;
+        repository.delete(currency);
+        assertTrue(repository.get(currency.uuid()).isEmpty());
+        assertTrue(DeletedRecords.getSince(repository.getDataSource(), since).containsKey(currency.uuid()));
+
+        DeletedRecords.purge(repository.getDataSource(), Long.MAX_VALUE);
+        assertTrue(DeletedRecords.getSince(repository.getDataSource(), since).isEmpty());
+    }
+
+    @Test
+    public void testTransactionQueryPlans() throws Exception {
+        var repository = getDao().getTransactionRepository();
+        var uuid = UUID.randomUUID();
+
+        try (var conn = repository.getDataSource().getConnection()) {
+            assertPlan(conn, repository.getByAccountSql(), st -> {
+                    Repository.setUuid(st, 1, uuid);
+                    Repository.setUuid(st, 2, uuid);
+                    Repository.setUuid(st, 3, uuid);
+                });
+            assertPlan(conn, repository.getByParentSql(), st -> Repository.setUuid(st, 1, uuid));
+            assertPlan(conn, repository.getByDateRangeSql(), st -> {
+                    st.setInt(1, 18262);
+                    st.setInt(2, 18992);
+                },
+                "TRANSACTION_EPOCH_DAY_IDX");
+        }
+    }
+
+    private static void assertPlan(Connection conn, String sql, Repository.Parameters parameters, String... indexes)
+        throws SQLException
+    {
+        try (var st = conn.prepareStatement("EXPLAIN " + sql)) {
+            parameters.set(st);
+            try (var rs = st.executeQuery()) {
+                assertTrue(rs.next());
+                var plan = rs.getString(1).toUpperCase();
+                assertFalse(plan.contains("TABLESCAN"), "Table scan is used:\n" + plan);
+                for (var index : indexes) {
+                    assertTrue(plan.contains(index), "Index " + index + " is not used:\n" + plan);
+                }
+            }
+        }
+    }
+
     private static <T extends MoneyRecord> void insertAndUpdate(Repository<T> repository, T insert, T update) {
         var uuid = insert.uuid();
 
@@ -0,0 +1,93 @@
+/*
+ Copyright (c) Petr Panteleyev. All rights reserved.
+ Licensed under the BSD license. See LICENSE file in the project root for full license information.
+ */
+package org.panteleyev.money.persistence;
+
+import org.panteleyev.money.test.BaseTest;
+import org.testng.annotations.Test;
+import static org.panteleyev.money.test.BaseTestUtils.newTransaction;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertTrue;
+
+public class TestStatementCache extends BaseTest {
+    private static final String SQL_1 = "SELECT * FROM icon";
+    private static final String SQL_2 = "SELECT * FROM category";
+
+    @Test
+    public void testRepeatedInsertAndUpdate() {
+        var target = new FakeDataSource();
+        var pool = new ConnectionPool.Builder(target).build();
+        var repository = new TransactionRepository(pool);
+
+        for (int i = 0; i < 10; i++) {
+            var transaction = newTransaction();
+            repository.insert(transaction);
+            repository.update(transaction);
+        }
+
+        assertEquals(target.getPrepareCount(repository.getInsertSql()), 1);
+        assertEquals(target.getPrepareCount(repository.getUpdateSql()), 1);
+
+        var metrics = pool.getMetrics();
+        assertEquals(metrics.statementsPrepared(), 2);
+        assertEquals(metrics.statementCacheHits(), 18);
+    }
+
+    @Test
+    public void testDisabledCache() {
+        var target = new FakeDataSource();
+        var pool = new ConnectionPool.Builder(target)
+            .statementCacheSize(0)
+            .build();
+        var repository = new TransactionRepository(pool);
+
+        for (int i = 0; i < 10; i++) {
+            repository.insert(newTransaction());
+        }
+
+        assertEquals(target.getPrepareCount(repository.getInsertSql()), 10);
+    }
+
+    @Test
+    public void testStatementInUse() throws Exception {
+        var target = new FakeDataSource();
+        var pool = new ConnectionPool.Builder(target).build();
+
+        try (var conn = pool.getConnection()) {
+            try (var st1 = conn.prepareStatement(SQL_1); var st2 = conn.prepareStatement(SQL_1)) {
+                // Open statement is not shared
+                assertNotSame(st1, st2);
+                assertEquals(target.getPrepareCount(SQL_1), 2);
+            }
+
+            var st = conn.prepareStatement(SQL_1);
+            st.close();
+            assertTrue(st.isClosed());
+            assertEquals(target.getPrepareCount(SQL_1), 2);
+        }
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        var target = new FakeDataSource();
+        var pool = new ConnectionPool.Builder(target)
+            .statementCacheSize(1)
+            .build();
+
+        try (var conn = pool.getConnection()) {
+            conn.prepareStatement(SQL_1).close();
+            conn.prepareStatement(SQL_2).close();
+            conn.prepareStatement(SQL_2).close();
+            assertEquals(target.getPrepareCount(SQL_2), 1);
+
+            // SQL_1 was evicted
+            var st = conn.prepareStatement(SQL_1);
+            assertFalse(st.isClosed());
+            st.close();
+            assertEquals(target.getPrepareCount(SQL_1), 2);
+        }
+    }
+}
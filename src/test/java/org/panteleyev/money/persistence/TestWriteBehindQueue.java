@@ -0,0 +1,222 @@
+/*
+ Copyright (c) Petr Panteleyev. All rights reserved.
+ Licensed under the BSD license. See LICENSE file in the project root for full license information.
+ */
+package org.panteleyev.money.persistence;
+
+import org.panteleyev.money.model.Account;
+import org.panteleyev.money.model.Category;
+import org.testng.annotations.Test;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import static org.panteleyev.money.test.BaseTestUtils.newAccount;
+import static org.panteleyev.money.test.BaseTestUtils.newCategory;
+import static org.panteleyev.money.test.BaseTestUtils.newCurrency;
+import static org.panteleyev.money.test.BaseTestUtils.randomString;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+public class TestWriteBehindQueue {
+    private static final Duration NEVER = Duration.ofHours(1);
+
+    private final List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    public void testBatching() {
+        var target = new FakeDataSource();
+        var categories = new CategoryRepository(target);
+        var accounts = new AccountRepository(target);
+
+        var queue = new WriteBehindQueue(target, NEVER, 100, errors::add);
+
+        var category = newCategory();
+        queue.insert(categories, category);
+        // Updates of pending record are merged
+        for (int i = 0; i < 3; i++) {
+            queue.update(categories, new Category.Builder(category).comment(randomString()).build());
+        }
+        queue.insert(accounts, newAccount(category, newCurrency()));
+        assertEquals(queue.getPendingCount(), 2);
+
+        queue.flush();
+        assertEquals(queue.getPendingCount(), 0);
+        assertEquals(target.getConnections().size(), 1);
+        assertEquals(target.getCommits(), 1);
+        assertEquals(target.getBatchCount(categories.getInsertSql()), 1);
+        assertEquals(target.getBatchCount(categories.getUpdateSql()), 0);
+        assertEquals(target.getBatchCount(accounts.getInsertSql()), 1);
+        assertTrue(errors.isEmpty());
+
+        queue.close();
+    }
+
+    @Test
+    public void testDeleteIsNotMerged() {
+        var target = new FakeDataSource();
+        var categories = new CategoryRepository(target);
+
+        var queue = new WriteBehindQueue(target, NEVER, 100, errors::add);
+
+        var category = newCategory();
+        queue.insert(categories, category);
+        queue.delete(categories, category);
+        queue.update(categories, category);
+        assertEquals(queue.getPendingCount(), 3);
+        queue.close();
+
+        assertEquals(target.getCommits(), 1);
+        assertEquals(target.getBatchCount(categories.getInsertSql()), 1);
+        assertEquals(target.getBatchCount(categories.getUpdateSql()), 1);
+    }
+
+    @Test
+    public void testMaxBatchSize() {
+        var target = new FakeDataSource();
+        var categories = new CategoryRepository(target);
+
+        var queue = new WriteBehindQueue(target, NEVER, 2, errors::add);
+        for (int i = 0; i < 5; i++) {
+            queue.insert(categories, newCategory());
+        }
+        queue.flush();
+
+        assertEquals(target.getCommits(), 3);
+        assertEquals(target.getBatchCount(categories.getInsertSql()), 5);
+        queue.close();
+    }
+
+    @Test
+    public void testLatency() throws Exception {
+        var target = new FakeDataSource();
+        var categories = new CategoryRepository(target);
+
+        var queue = new WriteBehindQueue(target, Duration.ofMillis(20), 100, errors::add);
+        queue.insert(categories, newCategory());
+
+        // Written without flush
+        var deadline = System.currentTimeMillis() + 5000;
+        while (queue.getPendingCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(queue.getPendingCount(), 0);
+        queue.close();
+        assertEquals(target.getCommits(), 1);
+    }
+
+    @Test
+    public void testFailure() {
+        var target = new FakeDataSource();
+        var categories = new CategoryRepository(target);
+
+        var queue = new WriteBehindQueue(target, NEVER, 100, errors::add);
+        target.setWriteFailure(true);
+        queue.insert(categories, newCategory());
+
+        assertThrows(RuntimeException.class, queue::flush);
+        assertEquals(errors.size(), 1);
+        assertEquals(target.getRollbacks(), 1);
+        assertEquals(target.getCommits(), 0);
+
+        // Failed mutations are kept and written before later ones
+        target.setWriteFailure(false);
+        queue.insert(categories, newCategory());
+        assertEquals(queue.getPendingCount(), 2);
+        queue.flush();
+        assertEquals(queue.getPendingCount(), 0);
+        assertEquals(target.getCommits(), 1);
+        assertEquals(target.getBatchCount(categories.getInsertSql()), 3);
+        assertEquals(errors.size(), 1);
+        queue.close();
+    }
+
+    @Test
+    public void testPermanentFailure() {
+        var target = new FakeDataSource();
+        var categories = new CategoryRepository(target);
+        var accounts = new AccountRepository(target);
+        target.addFailingSql(accounts.getInsertSql());
+
+        var reported = Collections.synchronizedList(new ArrayList<Throwable>());
+        var queue = new WriteBehindQueue(target, NEVER, 100, reported::add);
+        var category = newCategory();
+        queue.insert(accounts, newAccount(category, newCurrency()));
+        queue.insert(categories, category);
+
+        // Failed batch is reported once however many times it is retried
+        assertThrows(RuntimeException.class, queue::flush);
+        assertThrows(RuntimeException.class, queue::flush);
+        assertEquals(reported.size(), 1);
+        assertEquals(queue.getPendingCount(), 2);
+
+        // Failing mutation is discarded and reported, other mutations of the batch are written
+        assertThrows(RuntimeException.class, queue::flush);
+        assertEquals(reported.size(), 2);
+        assertEquals(queue.getPendingCount(), 0);
+        assertEquals(target.getCommits(), 1);
+
+        // Later mutations are not blocked
+        queue.insert(categories, newCategory());
+        queue.flush();
+        assertEquals(target.getCommits(), 2);
+        assertEquals(target.getBatchCount(categories.getInsertSql()), 2);
+        assertEquals(reported.size(), 2);
+        queue.close();
+    }
+
+    @Test
+    public void testFailureOnClose() {
+        var target = new FakeDataSource();
+        var categories = new CategoryRepository(target);
+
+        var queue = new WriteBehindQueue(target, NEVER, 100, errors::add);
+        target.setWriteFailure(true);
+        queue.insert(categories, newCategory());
+
+        assertThrows(RuntimeException.class, queue::close);
+        assertEquals(target.getRollbacks(), 1);
+        assertThrows(IllegalStateException.class, () -> queue.insert(categories, newCategory()));
+    }
+
+    @Test
+    public void testUpdateIsNotMergedAcrossInsert() {
+        var target = new FakeDataSource();
+        var categories = new CategoryRepository(target);
+        var accounts = new AccountRepository(target);
+
+        var queue = new WriteBehindQueue(target, NEVER, 100, errors::add);
+
+        var account = newAccount(newCategory(), newCurrency());
+        var category = newCategory();
+        queue.insert(accounts, account);
+        queue.insert(categories, category);
+        // Merged update would be written before insert of the category it references
+        var update = new Account.Builder(account).categoryUuid(category.uuid()).build();
+        queue.update(accounts, update);
+        assertEquals(queue.getPendingCount(), 3);
+
+        // No insert after the pending update
+        queue.update(accounts, new Account.Builder(update).comment(randomString()).build());
+        assertEquals(queue.getPendingCount(), 3);
+
+        queue.close();
+        assertEquals(target.getBatchCount(accounts.getInsertSql()), 1);
+        assertEquals(target.getBatchCount(categories.getInsertSql()), 1);
+        assertEquals(target.getBatchCount(accounts.getUpdateSql()), 1);
+    }
+
+    @Test
+    public void testClose() {
+        var target = new FakeDataSource();
+        var categories = new CategoryRepository(target);
+
+        var queue = new WriteBehindQueue(target, NEVER, 100, errors::add);
+        queue.insert(categories, newCategory());
+        queue.close();
+
+        assertEquals(target.getCommits(), 1);
+        assertThrows(IllegalStateException.class, () -> queue.insert(categories, newCategory()));
+    }
+}
@@ -9,6 +9,7 @@ import org.panteleyev.money.model.Category;
 import org.panteleyev.money.model.Contact;
 import org.panteleyev.money.model.Currency;
 import org.panteleyev.money.model.Icon;
+import org.panteleyev.money.model.MoneyRecord;
 import org.panteleyev.money.model.Transaction;
 import org.panteleyev.money.persistence.DataCache;
 import org.panteleyev.money.test.BaseTest;
@@ -16,6 +17,7 @@ import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import static org.panteleyev.money.persistence.BaseDaoTest.ICON_DOLLAR;
@@ -290,4 +292,26 @@ public class TestImportExport extends BaseTest implements XsdUtil {
         assertRecords(imp.getContacts(), con1);
         assertRecords(imp.getTransactions(), detailedTransaction, detail1, detail2);
     }
+
+    @Test
+    public void testStreamingParse() throws Exception {
+        var outStream = new ByteArrayOutputStream();
+
+        new Export(mock).withTransactions(List.of(detailedTransaction), true).doExport(outStream);
+        var bytes = outStream.toByteArray();
+
+        var records = new ArrayList<MoneyRecord>();
+        Import.parse(new ByteArrayInputStream(bytes), records::add);
+
+        var imp = Import.doImport(new ByteArrayInputStream(bytes));
+        var expected = new ArrayList<MoneyRecord>();
+        expected.addAll(imp.getIcons());
+        expected.addAll(imp.getAccounts());
+        expected.addAll(imp.getCategories());
+        expected.addAll(imp.getContacts());
+        expected.addAll(imp.getCurrencies());
+        expected.addAll(imp.getTransactions());
+        // Records are passed in the file order
+        assertEquals(records, expected);
+    }
 }
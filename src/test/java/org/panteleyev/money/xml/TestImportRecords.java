@@ -11,10 +11,13 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 import java.io.File;
 import java.io.FileInputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
 import static org.panteleyev.money.persistence.DataCache.cache;
 import static org.panteleyev.money.persistence.MoneyDAO.IGNORE_PROGRESS;
 import static org.panteleyev.money.persistence.MoneyDAO.getDao;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertThrows;
 import static org.testng.Assert.assertTrue;
 
 public class TestImportRecords extends BaseDaoTest {
@@ -30,7 +33,7 @@ public class TestImportRecords extends BaseDaoTest {
         try {
             super.setupAndSkip();
             getDao().createTables();
-            getDao().preload(t -> { });
+            getDao().preload(t -> { }).join();
         } catch (Exception ex) {
             throw new SkipException("Database not configured");
         }
@@ -42,23 +45,44 @@ public class TestImportRecords extends BaseDaoTest {
         assertTrue(initial.exists());
 
         try (var inputStream = new FileInputStream(initial)) {
-            getDao().importFullDump(Import.doImport(inputStream), IGNORE_PROGRESS);
+            // Bulk load falls back to regular batches on H2
+            getDao().importFullDump(Import.doImport(inputStream), true, IGNORE_PROGRESS);
         }
 
-        getDao().preload();
+        getDao().preload().join();
         compareDatabase(INITIAL);
 
         var update = new File(UPDATE);
         assertTrue(update.exists());
 
         try (var inputStream = new FileInputStream(update)) {
-            getDao().importRecords(Import.doImport(inputStream), IGNORE_PROGRESS);
+            getDao().importRecordsAsync(Import.doImport(inputStream), IGNORE_PROGRESS).join();
         }
 
-        getDao().preload();
+        getDao().preload().join();
         compareDatabase(EXPECTED);
     }
 
+    @Test
+    public void testInvalidFullDump() throws Exception {
+        var initial = new File(INITIAL);
+        getDao().importFullDump(initial.toPath(), true, IGNORE_PROGRESS);
+
+        var content = Files.readAllBytes(initial.toPath());
+        var truncated = Files.createTempFile("money", ".xml");
+        try {
+            Files.write(truncated, Arrays.copyOf(content, content.length / 2));
+            // Existing tables are not dropped
+            assertThrows(RuntimeException.class,
+                () -> getDao().importFullDump(truncated, true, IGNORE_PROGRESS));
+        } finally {
+            Files.delete(truncated);
+        }
+
+        getDao().preload().join();
+        compareDatabase(INITIAL);
+    }
+
     private void compareDatabase(String expected) throws Exception {
         var file = new File(expected);
         assertTrue(file.exists());